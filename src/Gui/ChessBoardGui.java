@@ -2,7 +2,9 @@ package Gui;
 
 import gameengine.GameEngine;
 import gameengine.PieceMove;
+import gameengine.TimeManager;
 import gamelogic.ChessGame;
+import gamelogic.GameLogicUtilities;
 import gamelogic.GameStatusHandler;
 import gamelogic.pieces.Piece;
 
@@ -12,9 +14,15 @@ import java.awt.*;
 public class ChessBoardGui extends JFrame {
     private final ChessGame game = new ChessGame("");
     private final JButton[][] buttonsBoard;
-    private GameEngine gameEngine = new GameEngine();
+    private final GameEngine gameEngine = new GameEngine();
     private final GameSettings gameSettings = new GameSettings();
     boolean botShowDown = false;
+    // When the engine plays with a clock, the remaining time of each color (white, black) and when the turn started
+    private final long[] clockRemainingTime = new long[2];
+    private long turnStartTime;
+
+    private static final long MILLISECONDS_IN_SECOND = 1000;
+    private static final long MILLISECONDS_IN_MINUTE = 60 * MILLISECONDS_IN_SECOND;
 
     private final PiecesImage pieceImage;
 
@@ -88,7 +96,7 @@ public class ChessBoardGui extends JFrame {
 
     // Will take over the game, and the engine will play vs itself with the current game settings
     private void botShowDown() {
-        gameEngine.interrupt();
+        gameEngine.stopSearch();
         botShowDown = true;
 
         newGameEngineSearch(true);
@@ -97,26 +105,46 @@ public class ChessBoardGui extends JFrame {
 
     // Will start a new game engine search for best move, either with or without time limit
     public void newGameEngineSearch(boolean withTimeLimit) {
-        // End previous search if exist
-        if (gameEngine != null)
-            gameEngine.interrupt();
-
-        // Create new search with the game settings, and with or without time limit
-        gameEngine = new GameEngine(game, this, gameSettings.startingDepthForSearch,
-                gameSettings.engineTimeToThink, withTimeLimit);
-        gameEngine.start();
+        // With a clock, the time of the search is decided by the remaining time of the engine and its increment
+        if (withTimeLimit && isPlayingWithClock()) {
+            turnStartTime = System.currentTimeMillis();
+            TimeManager timeManager = TimeManager.forClock(clockRemainingTime[getClockIndex(game.getPlayerToPlay())],
+                    gameSettings.engineIncrementSeconds * MILLISECONDS_IN_SECOND);
+            gameEngine.startSearch(game, this, gameSettings.startingDepthForSearch, timeManager,
+                    gameSettings.engineNumberOfThreads);
+            return;
+        }
+
+        // Start new search with the game settings, and with or without time limit, the previous search is stopped
+        gameEngine.startSearch(game, this, gameSettings.startingDepthForSearch,
+                gameSettings.engineTimeToThink, withTimeLimit, gameSettings.engineNumberOfThreads);
+    }
+
+    // Return if the engine plays with a clock, and not a fixed time to think on each move
+    private boolean isPlayingWithClock() {
+        return gameSettings.engineClockMinutes > 0;
+    }
+
+    // Given a color, return the index of its clock
+    private static int getClockIndex(boolean color) {
+        return color ? 0 : 1;
     }
 
     // bot will play its turn now, and when finish will start a search while player is playing
     public void playBotTurn() {
         // First, end bot thinking phase
-        gameEngine.interrupt();
+        gameEngine.stopSearch();
         // Get best move found and execute it
         PieceMove move = gameEngine.getBestMove();
+        // The engine used the time since its turn started, and gets the increment after its move
+        if (isPlayingWithClock())
+            clockRemainingTime[getClockIndex(game.getPlayerToPlay())] += gameSettings.engineIncrementSeconds
+                    * MILLISECONDS_IN_SECOND - (System.currentTimeMillis() - turnStartTime);
         game.executeMove(move.getCurrentPieceSquare(), move.getTargetSquare(), move.getTypeOfPieceToPromoteTo());
         afterMoveHandle(game.getGameStatus(), move.getTargetSquare(), move.getCurrentPieceSquare());
         // Check if the game is not over, and start a thinking search while the player is playing
-        if (!game.isGameOver()) {
+        // If it's the engine turn again (bot show down), the search for its move already started
+        if (!game.isGameOver() && game.getPlayerToPlay() != gameSettings.engineColorToPlay && !botShowDown) {
             newGameEngineSearch(false);
         }
     }
@@ -199,6 +227,11 @@ public class ChessBoardGui extends JFrame {
         botShowDown = false;
         game.reset(gameSettings.fenStartingPosition);
         gameEngine.resetEngine();
+        // The search was stopped by the reset, so the transposition table can be resized
+        GameEngine.setTranspositionTableSize(gameSettings.transpositionTableSizeMB);
+        long clockTime = gameSettings.engineClockMinutes * MILLISECONDS_IN_MINUTE;
+        clockRemainingTime[getClockIndex(GameLogicUtilities.WHITE)] = clockTime;
+        clockRemainingTime[getClockIndex(GameLogicUtilities.BLACK)] = clockTime;
         updateBoard();
         // If the bot is white, on the first search it needs to be with time limit, if black without
         newGameEngineSearch(gameSettings.engineColorToPlay);
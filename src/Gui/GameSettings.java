@@ -3,11 +3,19 @@ package Gui;
 // Class that represent game settings of the game
 // 1. The color that the engine is playing (white/black)
 // 2. The time giving the engine to think
-// 3. Starting depth of the search
-// 4. String that represent the FEN of the starting position
+// 3. The clock of the engine in minutes and its increment in seconds, if the clock is 0 the engine thinks the time
+// giving on each move
+// 4. The number of threads the engine search with
+// 5. The size of the transposition table of the engine in megabytes
+// 6. Starting depth of the search
+// 7. String that represent the FEN of the starting position
 public class GameSettings {
     boolean engineColorToPlay;
     int engineTimeToThink;
+    int engineClockMinutes;
+    int engineIncrementSeconds;
+    int engineNumberOfThreads;
+    int transpositionTableSizeMB;
     int startingDepthForSearch;
     String fenStartingPosition;
 
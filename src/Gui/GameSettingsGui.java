@@ -1,5 +1,7 @@
 package Gui;
 
+import gameengine.TranspositionTableHandler;
+
 import javax.swing.*;
 import java.awt.*;
 
@@ -30,6 +32,22 @@ public class GameSettingsGui {
         JTextField timeTextField = new JTextField(20); // Increase text field size
         timeTextField.setText("2");
 
+        JLabel clockLabel = new JLabel("Engine clock in minutes (0 for time to think):");
+        JTextField clockTextField = new JTextField(20);
+        clockTextField.setText("0");
+
+        JLabel incrementLabel = new JLabel("Clock increment in seconds:");
+        JTextField incrementTextField = new JTextField(20);
+        incrementTextField.setText("0");
+
+        JLabel threadsLabel = new JLabel("Number of threads:");
+        JTextField threadsTextField = new JTextField(20); // Increase text field size
+        threadsTextField.setText(String.valueOf(Runtime.getRuntime().availableProcessors()));
+
+        JLabel tableSizeLabel = new JLabel("Transposition table size in MB:");
+        JTextField tableSizeTextField = new JTextField(20);
+        tableSizeTextField.setText(String.valueOf(TranspositionTableHandler.DEFAULT_TABLE_SIZE_MB));
+
         JLabel depthLabel = new JLabel("Starting depth (recommended 2):");
         JTextField depthTextField = new JTextField(20); // Increase text field size
         depthTextField.setText("2");
@@ -41,6 +59,10 @@ public class GameSettingsGui {
             gameSettings.engineColorToPlay = colorComboBox.getSelectedIndex() == WHITE_COLOR_INDEX;
             gameSettings.fenStartingPosition = fenTextField.getText();
             gameSettings.engineTimeToThink = Integer.parseInt(timeTextField.getText());
+            gameSettings.engineClockMinutes = Integer.parseInt(clockTextField.getText());
+            gameSettings.engineIncrementSeconds = Integer.parseInt(incrementTextField.getText());
+            gameSettings.engineNumberOfThreads = Integer.parseInt(threadsTextField.getText());
+            gameSettings.transpositionTableSizeMB = Integer.parseInt(tableSizeTextField.getText());
             gameSettings.startingDepthForSearch = Integer.parseInt(depthTextField.getText());
 
             // Start a game
@@ -66,6 +88,30 @@ public class GameSettingsGui {
         gbc.gridx++;
         panel.add(timeTextField, gbc);
 
+        gbc.gridx = 0;
+        gbc.gridy++;
+        panel.add(clockLabel, gbc);
+        gbc.gridx++;
+        panel.add(clockTextField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        panel.add(incrementLabel, gbc);
+        gbc.gridx++;
+        panel.add(incrementTextField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        panel.add(threadsLabel, gbc);
+        gbc.gridx++;
+        panel.add(threadsTextField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy++;
+        panel.add(tableSizeLabel, gbc);
+        gbc.gridx++;
+        panel.add(tableSizeTextField, gbc);
+
         gbc.gridx = 0;
         gbc.gridy++;
         panel.add(depthLabel, gbc);
@@ -0,0 +1,82 @@
+package gameengine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Class responsible for the evaluation cache. The same position is often reached by different move orders in the same
+    search, the cache stores the evaluation of positions by their zobrist hash, so each one is evaluated only once.
+    The cache is direct mapped - a power of 2 number of entries, each position has one entry it can be stored in, and a
+    new position always replaces the old one. The entries are stored in 2 arrays, the hash xor the score, and the score.
+    Xor-ing them back gives the hash only if both were written by the same store, that way the cache can be shared
+    between threads without a lock - an entry that was half overwritten by another thread is simply a miss.
+    The number of hits and misses is counted with adders, that each thread updates without waiting for the others.
+ */
+public class EvaluationCache {
+
+    public static final int DEFAULT_CACHE_SIZE_MB = 4;
+    // Returned when the position is not in the cache, no real evaluation can be this low
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    private static final int BYTES_PER_ENTRY = Long.BYTES + Integer.BYTES;
+    private static final int BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int indexMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Builder, create a cache that take at most sizeInMegabytes of memory
+    public EvaluationCache(int sizeInMegabytes) {
+        long numberOfEntries = (long) sizeInMegabytes * BYTES_IN_MEGABYTE / BYTES_PER_ENTRY;
+        // Round down to a power of 2, so the index of an entry can be taken from the bits of the hash
+        int powerOfTwoEntries = (int) Long.highestOneBit(Math.max(1, Math.min(numberOfEntries, Integer.MAX_VALUE)));
+
+        keys = new long[powerOfTwoEntries];
+        scores = new int[powerOfTwoEntries];
+        indexMask = powerOfTwoEntries - 1;
+    }
+
+    // Given the hash of a position, return its stored evaluation, or NO_SCORE if it's not in the cache
+    public int probe(long hash) {
+        int index = (int) hash & indexMask;
+        int score = scores[index];
+        if ((keys[index] ^ score) == hash) {
+            hits.increment();
+            return score;
+        }
+
+        misses.increment();
+        return NO_SCORE;
+    }
+
+    // Store the evaluation of a position by its hash, replacing the position that was in its entry
+    public void store(long hash, int score) {
+        int index = (int) hash & indexMask;
+        keys[index] = hash ^ score;
+        scores[index] = score;
+    }
+
+    // Clear the cache and its counters
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(scores, 0);
+        resetCounters();
+    }
+
+    // Reset the number of hits and misses, the stored evaluations are kept since they depend only on the position
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+    }
+
+    // Getters of the number of hits and misses since the counters were reset
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
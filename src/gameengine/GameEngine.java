@@ -2,143 +2,573 @@ package gameengine;
 
 import Gui.ChessBoardGui;
 import gamelogic.ChessGame;
+import gamelogic.EncodedMove;
+import gamelogic.GameStatusHandler;
+import gamelogic.MoveBuffer;
+import gamelogic.MoveGenerator;
+import gamelogic.StaticExchangeEvaluation;
+import gamelogic.pieces.Piece;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static gamelogic.pieces.PieceEvaluationConstants.PIECE_VALUE_BY_TYPE;
 
 // Main class of the game engine, responsible for calculating the best move for a player
-// This version, is a thread, when built with game, startingDepthSearch and searchTimeSecond, will run findBestMove,
-// Every time increasing the depth search by 2, until the time is over, and will return the best move found of the last
-// fully completed search
-public class GameEngine extends Thread {
+// The engine has a search thread that lives as long as the engine, each search is a task given to it, so no thread is
+// created for each move. A search runs findBestMove, every time increasing the depth search by 1, until it's stopped,
+// the time manager decides there is no time for another depth or the time is over. The best move is of the last depth,
+// even if it was stopped, as long as its first move (the best move of the depth before) was fully searched
+// The search doesn't use thread interrupts, every few nodes it checks a stop flag and the deadline of the time manager
+// The search can run on more than 1 thread (lazy SMP): helper engines run the same search on their own copy of the
+// game, sharing the transposition table, so the main search find more positions already evaluated.
+// Only the main search decide what is the best move
+public class GameEngine {
+
+    private ChessGame gameToEvaluate;
+    private volatile PieceMove bestMove;
+    private TimeManager timeManager;
+    private AtomicBoolean stopFlag = new AtomicBoolean();
 
-    ChessGame gameToEvaluate;
-    private PieceMove bestMove;
-    private int depthSearch;
-    GameEngineMonitor monitor;
+    private static final TranspositionTableHandler transpositionTableHandler =
+            new TranspositionTableHandler(TranspositionTableHandler.DEFAULT_TABLE_SIZE_MB);
 
-    private static final TranspositionTableHandler transpositionTableHandler = new TranspositionTableHandler();
+    private static final long NANO_SECONDS_IN_SECOND = 1_000_000_000L;
+    private static final long SECOND_TO_MILLISECOND_MULTIPLIER = 1000;
+    // The stop flag and the deadline are checked once every this many nodes (must be a power of 2)
+    private static final int NODES_BETWEEN_STOP_CHECKS = 1024;
+    // The deepest the search can go, the moves of each ply are generated into their own buffer
+    private static final int MAX_PLY = 128;
+    // Higher than any score, so it can be negated without overflow
+    private static final int INFINITE_SCORE = Integer.MAX_VALUE - 1;
+    // The window of the aspiration search around the previous score, after it's bigger than the max, use full window
+    private static final int ASPIRATION_WINDOW = 50;
+    private static final int MAX_ASPIRATION_WINDOW = 800;
+    // A capture is not searched in the quiescence search if even with this margin it doesn't raise the score to alpha
+    private static final int DELTA_PRUNING_MARGIN = 200;
+    private static final int QUIESCENCE_ORDER_MULTIPLIER = 8;
+    // The null move is searched this much shallower than a real move would, even more in a deep search
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    private static final int NULL_MOVE_REDUCTION = 2;
+    private static final int NULL_MOVE_DEEP_DEPTH = 6;
+    private static final int NULL_MOVE_DEEP_REDUCTION = 3;
+    // Quiet moves from this index in the ordered moves are searched shallower, the later the move the more
+    private static final int LATE_MOVE_MIN_INDEX = 3;
+    private static final int LATE_MOVE_DEEP_INDEX = 8;
+    private static final int LATE_MOVE_MIN_DEPTH = 3;
+    private static final int LATE_MOVE_REDUCTION = 1;
+    private static final int LATE_MOVE_DEEP_REDUCTION = 2;
 
     private int counter = 0;
+    private long numberOfNodes = 0;
+    private long nodesPerSecond = 0;
+    private final MoveOrderingHandler moveOrderingHandler = new MoveOrderingHandler(MAX_PLY);
+    private final StaticExchangeEvaluation staticExchangeEvaluation = new StaticExchangeEvaluation();
+    private final MoveBuffer[] moveStack = GameEngineUtilities.createMoveStack(MAX_PLY);
+    private final MovePicker[] movePickers = GameEngineUtilities.createMovePickers(MAX_PLY, moveOrderingHandler);
+    private int rootBestMove;
+    private int rootBestScore;
+    private int previousIterationBestMove = EncodedMove.NO_MOVE;
+    private boolean searchStopped;
+    private int previousIterationScore;
+    private boolean hasPreviousIterationScore;
+
+    // The threads of the engine, and the helper engines that are kept between searches. The search thread is created
+    // once, the helper threads are created again only when the number of threads of the search changes
+    private final ExecutorService searchThread;
+    private ExecutorService helperThreads;
+    private int numberOfHelperThreads;
+    private final List<GameEngine> helperEngines = new ArrayList<>();
+    private Future<?> currentSearch;
+    private AtomicBoolean currentSearchStopFlag = new AtomicBoolean();
 
     public static final GameEvaluater gameEvaluater = new GameEvaluater();
 
-    // Empty builder
+    // Builder, create the search thread of the engine, helper threads are created when a search needs them
     public GameEngine() {
+        this(Executors.newSingleThreadExecutor(GameEngine::createSearchThread));
     }
 
-    // Builder, create monitor to stop search when time is over
-    public GameEngine(ChessGame game, ChessBoardGui gui, int startingDepthSearch, int searchTimeSecond, boolean withTimeLimit) {
-        gameToEvaluate = game;
-        this.depthSearch = startingDepthSearch;
-        // If there is a time limit, add monitor to stop it the run after set time
-        if (withTimeLimit)
-            monitor = new GameEngineMonitor(this, gui, searchTimeSecond);
+    // Builder with the search thread of the engine, a helper engine has no threads of its own, it runs on the threads
+    // of the main engine
+    private GameEngine(ExecutorService searchThread) {
+        this.searchThread = searchThread;
+    }
+
+    // Create a thread for the searches, the threads don't keep the program running after it is closed
+    private static Thread createSearchThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "Search thread");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Start a search for the best move of the game, for a fixed time if there is a time limit
+    public void startSearch(ChessGame game, ChessBoardGui gui, int startingDepthSearch, int searchTimeSecond,
+                            boolean withTimeLimit, int numberOfThreads) {
+        startSearch(game, gui, startingDepthSearch, withTimeLimit
+                ? TimeManager.forMoveTime(searchTimeSecond * SECOND_TO_MILLISECOND_MULTIPLIER) : null, numberOfThreads);
     }
 
-    // Run function of thread, will run searches in deeper depth as long as not interrupted
-    @Override
-    public void run() {
-        // Run monitor to tell it when time is over to stop it
-        if (monitor != null)
-            monitor.start();
+    // Start a search for the best move of the game on the search thread, the search before it is stopped
+    // With a time manager, when the time is over, or the search finished early, the gui is told to play the move
+    // Without a time manager the search runs until stopped
+    public void startSearch(ChessGame game, ChessBoardGui gui, int startingDepthSearch, TimeManager timeManager,
+                            int numberOfThreads) {
+        stopSearch();
+        // Search on a copy of the game, the search makes and unmakes moves on it
+        ChessGame gameToSearch = new ChessGame(game);
+        AtomicBoolean searchStopFlag = new AtomicBoolean();
+        currentSearchStopFlag = searchStopFlag;
+        // The time starts now, even if the search before it is still finishing
+        if (timeManager != null)
+            timeManager.start();
 
+        currentSearch = searchThread.submit(() -> runSearch(gameToSearch, gui, Math.max(1, startingDepthSearch),
+                timeManager, Math.max(1, numberOfThreads), searchStopFlag));
+    }
+
+    // Stop the current search, the best move found until now is kept
+    public void stopSearch() {
+        currentSearchStopFlag.set(true);
+    }
+
+    // Wait until the current search is over
+    public void waitForSearchToFinish() {
+        if (currentSearch == null)
+            return;
+
+        try {
+            currentSearch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Run a search on the search thread, will run searches in deeper depth until stopped or the time is over
+    private void runSearch(ChessGame game, ChessBoardGui gui, int startingDepthSearch, TimeManager timeManager,
+                           int numberOfThreads, AtomicBoolean searchStopFlag) {
+        bestMove = null;
+        prepareSearch(game, timeManager, searchStopFlag);
         int successfulCounter = 0, successfulDepthSearch = 0;
-        PieceMove currentPieceMove;
+        long startTime = System.nanoTime();
+        // The hits and misses printed after the search are of this search only
+        gameEvaluater.getEvaluationCache().resetCounters();
+        transpositionTableHandler.newSearch();
+        List<Future<?>> helperSearches = startHelperEngines(numberOfThreads - 1, startingDepthSearch);
 
-        // Run as long as the thread is not interrupted
         try {
-            while (!this.isInterrupted()) {
+            for (int depthSearch = startingDepthSearch; !searchStopped && depthSearch < MAX_PLY; depthSearch++) {
                 counter = 0;
                 // Find the best move in the current depth
-                currentPieceMove = findBestMove(gameToEvaluate, depthSearch);
+                PieceMove currentPieceMove = findBestMove(gameToEvaluate, depthSearch);
 
-                // If interrupted before current search was completed, current search is not good
-                if (!this.isInterrupted()) {
-                    // Search was finished successfully, save last completed search info
+                // If stopped before the first move of the search was completed, current search is not good
+                if (currentPieceMove != null) {
+                    // Save the info of the search, also of a search that was stopped after its first move
                     bestMove = currentPieceMove;
                     successfulDepthSearch = depthSearch;
                     successfulCounter = counter;
                 }
-                depthSearch += 2;
+
+                // Don't start a new depth if it is predicted to not be finished in time
+                if (timeManager != null && !searchStopped) {
+                    timeManager.depthCompleted();
+                    if (!timeManager.shouldStartNextDepth())
+                        break;
+                }
             }
         } finally {
+            // A search that was stopped from outside doesn't play its move
+            boolean isStoppedFromOutside = searchStopFlag.get();
+            searchStopFlag.set(true);
+            long totalNumberOfNodes = numberOfNodes + waitForHelperEngines(helperSearches);
+            long searchTime = Math.max(1, System.nanoTime() - startTime);
+            nodesPerSecond = totalNumberOfNodes * NANO_SECONDS_IN_SECOND / searchTime;
+
             if (bestMove != null) {
                 System.out.println("Depth search: " + successfulDepthSearch + ". Position evaluated: " + successfulCounter);
+                System.out.println("Nodes per second: " + nodesPerSecond + ". Threads: " + numberOfThreads);
+                EvaluationCache evaluationCache = gameEvaluater.getEvaluationCache();
+                System.out.println("Evaluation cache hits: " + evaluationCache.getHits() + ". Misses: "
+                        + evaluationCache.getMisses());
                 System.out.println("Move found: " + bestMove.toStringWithMoveValue());
             }
+
+            // Let the gui play the move
+            if (timeManager != null && gui != null && !isStoppedFromOutside)
+                gui.playBotTurn();
+        }
+    }
+
+    // Reset the state of the engine for a new search of the game
+    private void prepareSearch(ChessGame game, TimeManager timeManager, AtomicBoolean searchStopFlag) {
+        gameToEvaluate = game;
+        this.timeManager = timeManager;
+        stopFlag = searchStopFlag;
+        searchStopped = searchStopFlag.get();
+        numberOfNodes = 0;
+        hasPreviousIterationScore = false;
+        previousIterationBestMove = EncodedMove.NO_MOVE;
+        moveOrderingHandler.newSearch();
+    }
+
+    // Start the helper engines of the search on the helper threads, each with its own copy of the game
+    // Half of them start one depth deeper than the main search, so the threads don't all search the same depth
+    private List<Future<?>> startHelperEngines(int numberOfHelpers, int startingDepthSearch) {
+        updateHelperThreads(numberOfHelpers);
+        while (helperEngines.size() < numberOfHelpers)
+            helperEngines.add(new GameEngine(null));
+
+        List<Future<?>> helperSearches = new ArrayList<>();
+        if (numberOfHelpers == 0)
+            return helperSearches;
+
+        // Each helper copies the game on its own thread, so the games that are changed on every move are not next to
+        // each other in memory, where threads writing to them would keep taking the same cache lines from each other
+        // The main search changes its game while the helpers copy, so they copy a snapshot that no thread changes
+        ChessGame gameSnapshot = new ChessGame(gameToEvaluate);
+        AtomicBoolean searchStopFlag = stopFlag;
+        for (int i = 0; i < numberOfHelpers; i++) {
+            GameEngine helperEngine = helperEngines.get(i);
+            int helperStartingDepth = startingDepthSearch + (i + 1) % 2;
+            helperSearches.add(helperThreads.submit(() -> helperEngine.runHelperSearch(new ChessGame(gameSnapshot),
+                    searchStopFlag, helperStartingDepth)));
         }
+        return helperSearches;
     }
 
-    // Find the best move in the game at the depth given, using alpha beta pruning - initialize the fist recursive call
+    // Keep a thread for each helper engine, the threads are created again only if the number of helpers changed
+    private void updateHelperThreads(int numberOfHelpers) {
+        if (numberOfHelpers == numberOfHelperThreads)
+            return;
+
+        if (helperThreads != null)
+            helperThreads.shutdown();
+        helperThreads = numberOfHelpers == 0
+                ? null : Executors.newFixedThreadPool(numberOfHelpers, GameEngine::createSearchThread);
+        numberOfHelperThreads = numberOfHelpers;
+    }
+
+    // Run searches in deeper depth until the main search stops, the helper only fills the transposition table
+    private void runHelperSearch(ChessGame game, AtomicBoolean searchStopFlag, int startingDepthSearch) {
+        prepareSearch(game, null, searchStopFlag);
+        for (int depthSearch = startingDepthSearch; !searchStopped && depthSearch < MAX_PLY; depthSearch++)
+            findBestMove(gameToEvaluate, depthSearch);
+    }
+
+    // Wait for the helper engines to stop (the stop flag is already on), return the number of nodes they searched
+    private long waitForHelperEngines(List<Future<?>> helperSearches) {
+        long helpersNumberOfNodes = 0;
+        for (int i = 0; i < helperSearches.size(); i++) {
+            try {
+                helperSearches.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+            helpersNumberOfNodes += helperEngines.get(i).numberOfNodes;
+        }
+        return helpersNumberOfNodes;
+    }
+
+    // Find the best move in the game at the depth given, using principal variation search - initialize the first
+    // recursive call. Return null if there is no move to play, or if the search was stopped before the first move
+    // was fully searched. The first move is the best move of the previous depth, so any move found after it is better
     public PieceMove findBestMove(ChessGame game, int depth) {
-        return alphaBeta(game, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, game.getPlayerToPlay(), null);
+        rootBestMove = EncodedMove.NO_MOVE;
+        int bestScore = aspirationSearch(game, depth);
+        if (rootBestMove == EncodedMove.NO_MOVE)
+            return null;
+
+        if (!searchStopped) {
+            previousIterationScore = bestScore;
+            hasPreviousIterationScore = true;
+        }
+        previousIterationBestMove = rootBestMove;
+        PieceMove bestMove = new PieceMove(rootBestMove, game);
+        // The score of the search is of the player to play, the move value is from white point of view
+        bestMove.setMoveValue(game.getPlayerToPlay() ? rootBestScore : -rootBestScore);
+        return bestMove;
+    }
+
+    // Search the game in every depth from 1 to the depth given, return the number of nodes searched in each depth
+    // The search runs on the calling thread, and the table is cleared first, so the number of nodes of a position are
+    // the same on every run
+    public long[] searchNodesPerDepth(ChessGame game, int maxDepth) {
+        long[] nodesPerDepth = new long[maxDepth + 1];
+        transpositionTableHandler.clearTable();
+        prepareSearch(new ChessGame(game), null, new AtomicBoolean());
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long nodesBeforeSearch = numberOfNodes;
+            findBestMove(gameToEvaluate, depth);
+            nodesPerDepth[depth] = numberOfNodes - nodesBeforeSearch;
+        }
+        return nodesPerDepth;
     }
 
     /*
-    Search for the best move using alpha beta pruning algorithm, in each recursive call, check if it's maximizing player,
-    white, or minimizer player, black. For each possible move, get it value using the recursive call, anc chose the best
-    according to the player (white want high number black wants low).
-    Alpha represents the best score found so far for white (big numbers), and beta represent the best score found for
-    black (low number), in the case that beta <= alpha we know a better move has already been found, and there is no
-    reason to keep searching that branch of the tree
+    Aspiration windows: the score of a search is usually close to the score of the previous depth, so the root is
+    searched with a small window around the previous score, a smaller window prune more of the tree.
+    If the score falls outside the window, the real score is unknown on that side, widen the window on that side and
+    search again. The first search, and a search after a mate was found, use the full window.
      */
+    private int aspirationSearch(ChessGame game, int depth) {
+        if (!hasPreviousIterationScore || isMateScore(previousIterationScore))
+            return principalVariationSearch(game, depth, 0, -INFINITE_SCORE, INFINITE_SCORE, true);
 
-    private PieceMove alphaBeta(ChessGame game, int depth, int alpha, int beta, boolean maximizingPlayer,
-                                PieceMove preMove) {
-        int bestScore = maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int windowSize = ASPIRATION_WINDOW;
+        int alpha = previousIterationScore - windowSize, beta = previousIterationScore + windowSize;
+        while (true) {
+            int score = principalVariationSearch(game, depth, 0, alpha, beta, true);
+            if (searchStopped || (score > alpha && score < beta))
+                return score;
 
-        // Check if the search is over or not
-        if (currentThread().isInterrupted())
-            return null;
+            // The window is too small, widen it twice as much on the side the score fell, or search the full window
+            windowSize *= 2;
+            if (score <= alpha)
+                alpha = windowSize > MAX_ASPIRATION_WINDOW ? -INFINITE_SCORE : score - windowSize;
+            else
+                beta = windowSize > MAX_ASPIRATION_WINDOW ? INFINITE_SCORE : score + windowSize;
+        }
+    }
 
-        // Check if the position was already evaluated with a greater depth
-        PieceMove bestMove = transpositionTableHandler.checkIfCalculatedAlready(game, depth, alpha, beta);
-        if (bestMove != null)
-            return bestMove;
+    /*
+    Search for the best move using negamax with principal variation search. The score is always from the point of view
+    of the player to play, so the score of a move is the negative score of the position after it for the enemy.
+    Alpha represents the best score the player to play is guaranteed so far, and beta the best score the enemy is
+    guaranteed, in the case that alpha >= beta the enemy will not let the game get to this position, and there is no
+    reason to keep searching it.
+    With good move ordering the first move is usually the best, so the other moves are only searched with a null window
+    (alpha, alpha + 1) that proves they are not better, which is much faster. Only if a move turn out to be better, it
+    is searched again with the full window to find its real score.
+    Return the score of the position, the best move of the root (ply 0) is saved in rootBestMove
+     */
+    private int principalVariationSearch(ChessGame game, int depth, int ply, int alpha, int beta,
+                                         boolean isNullMoveAllowed) {
+        // Check if the search is over or not
+        if (isSearchStopped())
+            return 0;
 
-        // Base case: if depth is 0 or game is over, return the evaluated score
-        if (depth == 0 || game.isGameOver()) {
-            preMove.setMoveValue(gameEvaluater.evaluateGame(game, depth));
+        // A position that repeated 3 times or 50 moves without a pawn move or a capture is a draw
+        if (ply > 0 && (game.isDrawByRepetition() || game.isDrawByFiftyMoveRule())) {
             counter++;
-            return preMove;
+            return 0;
+        }
+
+        // Check if the position was already evaluated with a greater depth, the root must search to find its move
+        if (ply > 0) {
+            int score = transpositionTableHandler.checkIfCalculatedAlready(game, depth, alpha, beta);
+            if (score != TranspositionTableHandler.NO_SCORE)
+                return score;
+        }
+
+        // Base case: if depth is 0, search only captures and promotions until the position is quiet
+        if (depth == 0 || ply == MAX_PLY - 1)
+            return quiescenceSearch(game, ply, alpha, beta);
+
+        // Null move pruning, if the position is still at least beta after passing the turn with a shallower search, a
+        // real move will probably be even better. Not in the end game, where passing the turn can be the best move
+        // (zugzwang), not while checked, and not twice in a row
+        boolean isChecked = game.isPlayerChecked();
+        if (isNullMoveAllowed && ply > 0 && depth >= NULL_MOVE_MIN_DEPTH && !isChecked && beta - alpha == 1
+                && !isMateScore(beta) && game.getGameStage() != GameStatusHandler.END_GAME) {
+            int reduction = depth > NULL_MOVE_DEEP_DEPTH ? NULL_MOVE_DEEP_REDUCTION : NULL_MOVE_REDUCTION;
+            game.makeNullMove();
+            int score = -principalVariationSearch(game, Math.max(0, depth - 1 - reduction), ply + 1, -beta,
+                    -beta + 1, false);
+            game.unmakeMove();
+
+            if (searchStopped)
+                return 0;
+            if (score >= beta)
+                return beta;
         }
 
-        // Get all move possible in this position, and sort them using move order
-        LinkedList<PieceMove> pieceMovesList = GameEngineUtilities.getAllPossibleMoves(game);
-        MoveOrderingHandler.sortMoveByOrderValue(game, pieceMovesList);
+        // Pick the moves of the position one at a time by move order, the best move stored for the position first
+        // In the root the best move of the previous depth is searched first
+        MovePicker movePicker = movePickers[ply];
+        movePicker.initialize(game, ply == 0 && previousIterationBestMove != EncodedMove.NO_MOVE
+                ? previousIterationBestMove : transpositionTableHandler.getBestMove(game), ply);
 
         // Evaluate and find the best move
-        for (PieceMove move : pieceMovesList) {
-            ChessGame newGame = new ChessGame(game);
-            newGame.executeMove(move.getCurrentPieceSquare(), move.getTargetSquare(), move.getTypeOfPieceToPromoteTo());
-
-            PieceMove current = alphaBeta(newGame, depth - 1, alpha, beta, !maximizingPlayer, move);
-            if (current == null)
-                return null;
-
-            // Check if we found a better score and check if we found a better alpha/beta
-            if (maximizingPlayer) {
-                if (current.getMoveValue() > bestScore) {
-                    bestScore = current.getMoveValue();
-                    bestMove = move;
-                }
-                alpha = Math.max(alpha, bestScore);
-            } else {
-                if (current.getMoveValue() < bestScore) {
-                    bestScore = current.getMoveValue();
-                    bestMove = move;
-                }
-                beta = Math.min(beta, bestScore);
+        int originalAlpha = alpha, bestScore = -INFINITE_SCORE, bestMove = EncodedMove.NO_MOVE;
+        int move, numberOfMovesSearched = 0;
+        while ((move = movePicker.nextMove()) != EncodedMove.NO_MOVE) {
+            int i = numberOfMovesSearched++, score;
+            game.makeMove(move);
+            if (i == 0)
+                score = -principalVariationSearch(game, depth - 1, ply + 1, -beta, -alpha, true);
+            else {
+                // Late move reductions, a quiet move that was ordered late is probably bad, search it shallower
+                // If it turns out to be better than alpha, search it again at full depth
+                int reduction = 0;
+                if (i >= LATE_MOVE_MIN_INDEX && depth >= LATE_MOVE_MIN_DEPTH && !isChecked
+                        && !EncodedMove.isCapture(move) && !EncodedMove.isPromotion(move) && !game.isPlayerChecked())
+                    reduction = i >= LATE_MOVE_DEEP_INDEX && depth > LATE_MOVE_MIN_DEPTH
+                            ? LATE_MOVE_DEEP_REDUCTION : LATE_MOVE_REDUCTION;
+
+                // Prove the move is not better than alpha with a null window, if it is, search it again
+                score = -principalVariationSearch(game, depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+                if (reduction > 0 && score > alpha)
+                    score = -principalVariationSearch(game, depth - 1, ply + 1, -alpha - 1, -alpha, true);
+                if (score > alpha && score < beta)
+                    score = -principalVariationSearch(game, depth - 1, ply + 1, -beta, -alpha, true);
             }
-            // Alpha beta cut off
-            if (beta <= alpha)
+            game.unmakeMove();
+
+            if (searchStopped)
+                return 0;
+
+            // Check if we found a better score and a better alpha
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                // In the root, save the move if its score is inside the window, or above it, so it's really better
+                if (ply == 0 && score > originalAlpha)
+                    saveRootBestMove(move, score);
+                alpha = Math.max(alpha, score);
+            }
+            // Alpha beta cut off, the move is likely good also in other positions
+            if (alpha >= beta) {
+                moveOrderingHandler.updateOnBetaCutoff(move, ply, depth, game.getPlayerToPlay());
                 break;
+            }
         }
-        transpositionTableHandler.updateTranspositionTable(bestMove, depth, bestScore, alpha, beta, game);
-        // Return the best move (there's always at least 1 move, otherwise the game would've been over)
-        assert bestMove != null;
-        bestMove.setMoveValue(bestScore);
-        return bestMove;
+
+        // If there are no moves it's checkmate or stalemate
+        if (numberOfMovesSearched == 0) {
+            counter++;
+            return evaluateForPlayerToPlay(gameEvaluater.evaluateGameOver(game, depth), game);
+        }
+
+        // The type of the score is decided by the window the position was searched with
+        transpositionTableHandler.updateTranspositionTable(bestMove, depth, bestScore, originalAlpha, beta, game);
+
+        // Return the best score (there's always at least 1 move, otherwise the game would've been over)
+        return bestScore;
+    }
+
+    /*
+    Quiescence search: a position in the middle of an exchange has an evaluation that is far from its real value, so at
+    the end of the search keep searching only captures and promotions until the position is quiet.
+    Stand pat - the player to play doesn't have to capture, so the evaluation of the position is a lower bound of its
+    score, if it's already at least beta there is no need to search.
+    Delta pruning - a capture that even with a safety margin can't raise the evaluation to alpha is not searched.
+    Losing captures - a capture that loses material by static exchange evaluation is not searched.
+    When the king is checked all the moves are searched, since the player can't choose not to escape the check
+     */
+    private int quiescenceSearch(ChessGame game, int ply, int alpha, int beta) {
+        // Check if the search is over or not
+        if (isSearchStopped())
+            return 0;
+
+        // The deepest ply has no move buffer to search from, also when checked, so only the board is evaluated
+        if (ply >= MAX_PLY - 1) {
+            counter++;
+            return evaluateForPlayerToPlay(gameEvaluater.evaluateBoard(game), game);
+        }
+
+        boolean isChecked = game.isPlayerChecked();
+        int standPat = -INFINITE_SCORE;
+        if (!isChecked) {
+            counter++;
+            // Repetitions and the fifty-move rule were checked before the quiescence search, and a position without
+            // legal moves is found by the search, so only the board is evaluated
+            standPat = evaluateForPlayerToPlay(gameEvaluater.evaluateBoard(game), game);
+            if (standPat >= beta)
+                return standPat;
+            alpha = Math.max(alpha, standPat);
+        }
+
+        // Get the captures and promotions, or all the moves if checked
+        MoveBuffer moveBuffer = moveStack[ply];
+        if (isChecked)
+            MoveGenerator.generateLegalMoves(game, moveBuffer);
+        else
+            MoveGenerator.generateLegalCapturesAndPromotions(game, moveBuffer);
+
+        // Checked and no move to escape it, it's checkmate
+        if (isChecked && moveBuffer.size() == 0) {
+            counter++;
+            return evaluateForPlayerToPlay(gameEvaluater.evaluateGameOver(game, 0), game);
+        }
+
+        // Search first the captures of the most valuable pieces by the least valuable pieces
+        for (int i = 0; i < moveBuffer.size(); i++)
+            moveBuffer.setMoveValue(i, getMaterialGain(moveBuffer.getMove(i)) * QUIESCENCE_ORDER_MULTIPLIER
+                    - EncodedMove.getPieceToMoveType(moveBuffer.getMove(i)));
+        moveBuffer.sortByMoveValue();
+
+        int bestScore = standPat;
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            int move = moveBuffer.getMove(i);
+            // Delta pruning, the move can't raise the evaluation up to alpha
+            if (!isChecked && standPat + getMaterialGain(move) + DELTA_PRUNING_MARGIN <= alpha)
+                continue;
+
+            // The capture loses material after the exchange on its target square
+            if (!isChecked && staticExchangeEvaluation.evaluate(game, move) < 0)
+                continue;
+
+            game.makeMove(move);
+            int score = -quiescenceSearch(game, ply + 1, -beta, -alpha);
+            game.unmakeMove();
+
+            if (searchStopped)
+                return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                alpha = Math.max(alpha, score);
+            }
+            if (alpha >= beta)
+                break;
+        }
+        return bestScore;
+    }
+
+    // Return the material the move gains, the value of the captured piece and of the promotion
+    private int getMaterialGain(int move) {
+        int materialGain = 0;
+        if (EncodedMove.isCapture(move))
+            materialGain += PIECE_VALUE_BY_TYPE[EncodedMove.getCapturedPieceType(move)];
+        if (EncodedMove.isPromotion(move))
+            materialGain += PIECE_VALUE_BY_TYPE[EncodedMove.getPromotionPieceType(move)]
+                    - PIECE_VALUE_BY_TYPE[Piece.PAWN];
+        return materialGain;
+    }
+
+    // Count the node, and every few nodes check if the search was stopped or its time is over, return if it's stopped
+    private boolean isSearchStopped() {
+        if ((++numberOfNodes & (NODES_BETWEEN_STOP_CHECKS - 1)) == 0 && !searchStopped)
+            searchStopped = stopFlag.get() || (timeManager != null && timeManager.isHardLimitReached());
+
+        return searchStopped;
+    }
+
+    // Return if the score is of a position where one of the players gets checkmated
+    private static boolean isMateScore(int score) {
+        return Math.abs(score) >= GameEvaluater.BLACK_GET_CHECK_MATE;
+    }
+
+    // Save the best move of the root and its score
+    private void saveRootBestMove(int move, int score) {
+        rootBestMove = move;
+        rootBestScore = score;
+    }
+
+    // The evaluation of the game is from white point of view, return it from the point of view of the player to play
+    private int evaluateForPlayerToPlay(int evaluation, ChessGame game) {
+        return game.getPlayerToPlay() ? evaluation : -evaluation;
     }
 
     // Return the best move from the last successful search
@@ -146,11 +576,28 @@ public class GameEngine extends Thread {
         return bestMove;
     }
 
+    // Return the number of nodes the engine searched
+    public long getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    // Return the number of nodes per second the last search did, of all the threads together
+    public long getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+
+    // Set the size of the transposition table in megabytes, the table is cleared
+    public static void setTranspositionTableSize(int sizeInMegabytes) {
+        transpositionTableHandler.resize(sizeInMegabytes);
+    }
+
     // Reset the game engine for a new game
     public void resetEngine() {
-        // Stop all running searches
-        this.interrupt();
-        // Reset transposition table
+        // Stop the running search, and wait for it before clearing the transposition table it uses
+        stopSearch();
+        waitForSearchToFinish();
+        // Reset transposition table and evaluation cache
         transpositionTableHandler.clearTable();
+        gameEvaluater.getEvaluationCache().clear();
     }
 }
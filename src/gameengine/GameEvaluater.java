@@ -1,8 +1,11 @@
 package gameengine;
 
 import gamelogic.ChessGame;
+import gamelogic.GameLogicUtilities;
 import gamelogic.GameStatusHandler;
 import gamelogic.pieces.Piece;
+import gamelogic.pieces.PieceEvaluation;
+import gamelogic.pieces.PieceEvaluationConstants;
 
 import java.util.LinkedList;
 
@@ -11,44 +14,114 @@ public class GameEvaluater {
 
     public static final int WHITE_GET_CHECK_MATE = Integer.MIN_VALUE + 2000;
     public static final int BLACK_GET_CHECK_MATE = Integer.MAX_VALUE - 2000;
+    // Only line pieces have an activity value, the value of the other pieces depends only on their square
+    private static final int[] LINE_PIECE_TYPES = {Piece.BISHOP, Piece.ROOK, Piece.QUEEN};
 
+    // The evaluater is shared by all the search threads, and so are its pawn hash table and evaluation cache
+    private final PawnStructureEvaluater pawnStructureEvaluater =
+            new PawnStructureEvaluater(PawnStructureEvaluater.DEFAULT_TABLE_SIZE_MB);
+    private final EvaluationCache evaluationCache = new EvaluationCache(EvaluationCache.DEFAULT_CACHE_SIZE_MB);
+    private static final PieceEvaluation pieceEvaluation = new PieceEvaluation();
 
-    // Given a chess game, return an evaluation of the game
+
+    // Given a chess game, return an evaluation of the game, a game that is over is evaluated by how it ended
+    // Finding the status of the game looks for a legal move, the search finds checkmates and draws by itself, so it
+    // evaluates only the board with evaluateBoard
     public int evaluateGame(ChessGame game, int currentDepth) {
-        // If white get check mated, return WHITE_GET_CHECK_MATE + currentDepth, that way faster mate will be chosen
+        // If the game is over, return the evaluation of the end of the game
         int gameStatus = game.getGameStatus();
         if (gameStatus == GameStatusHandler.CHECKMATE)
-            if (game.getPlayerToPlay())
-                return WHITE_GET_CHECK_MATE - currentDepth;
-            else
-                return BLACK_GET_CHECK_MATE + currentDepth;
-
-        // Draw, return 0
+            return evaluateGameOver(game, currentDepth);
         if (gameStatus == GameStatusHandler.DRAW)
             return 0;
 
-        // Evaluate the board
-        // TODO: for now only evaluate pieces activity and position
-        int eval = 0;
+        return evaluateBoard(game);
+    }
+
+    // Given a chess game, return an evaluation of its board, without checking if the game is over
+    public int evaluateBoard(ChessGame game) {
+        // The evaluation of the board depends only on the position, so it's cached by the hash of the position
+        int eval = evaluationCache.probe(game.getHash());
+        if (eval != EvaluationCache.NO_SCORE)
+            return eval;
+
+        // Evaluate the board, pieces activity and position, and the pawn structure
+        eval = 0;
         eval = evaluatePieceValue(game, eval);
+        eval += pawnStructureEvaluater.evaluatePawnStructure(game);
 
+        evaluationCache.store(game.getHash(), eval);
         return eval;
     }
 
-    // Evaluate the value of pieces in game
-    private int evaluatePieceValue(ChessGame game, int eval) {
-        long allPieceBitBoard = game.getAllPieceBitBoard();
-        LinkedList<Piece> list = game.getPieceList();
+    // Return the evaluation cache, with the number of its hits and misses
+    public EvaluationCache getEvaluationCache() {
+        return evaluationCache;
+    }
+
+    // Given a chess game where the player to play has no moves, return its evaluation
+    public int evaluateGameOver(ChessGame game, int currentDepth) {
+        // Stalemate, return 0
+        if (!game.isPlayerChecked())
+            return 0;
 
-        int gameStage = game.getGameStage();
+        // If white get check mated, return WHITE_GET_CHECK_MATE + currentDepth, that way faster mate will be chosen
+        if (game.getPlayerToPlay())
+            return WHITE_GET_CHECK_MATE - currentDepth;
+        else
+            return BLACK_GET_CHECK_MATE + currentDepth;
+    }
+
+    // Evaluate the value of pieces in game, the value of the pieces by their square is kept by the game, so only the
+    // activity of the line pieces is evaluated. The values are tapered between the middle game and the end game by
+    // the game phase, so the evaluation changes smoothly as pieces are traded
+    int evaluatePieceValue(ChessGame game, int eval) {
+        long allPieceBitBoard = game.getAllPieceBitBoard();
+        int gamePhase = game.getGamePhase();
+        eval += PieceEvaluation.taperedValue(game.getPositionValue(GameStatusHandler.MID_GAME),
+                game.getPositionValue(GameStatusHandler.END_GAME), gamePhase);
 
         // For white pieces add to the eval, for black subtract
+        for (int pieceType : LINE_PIECE_TYPES) {
+            eval += evaluateActivity(pieceType, game.getPieceTypeBitBoard(pieceType, GameLogicUtilities.WHITE),
+                    allPieceBitBoard, gamePhase);
+            eval -= evaluateActivity(pieceType, game.getPieceTypeBitBoard(pieceType, GameLogicUtilities.BLACK),
+                    allPieceBitBoard, gamePhase);
+        }
+        return eval;
+    }
+
+    // Given a piece type and the pieces of that type as bitboard, return the sum of their activity values
+    private int evaluateActivity(int pieceType, long piecesBitBoard, long allPieceBitBoard, int gamePhase) {
+        int activity = 0;
+        while (piecesBitBoard != 0) {
+            activity += pieceEvaluation.evaluateActivity(pieceType, (byte) Long.numberOfTrailingZeros(piecesBitBoard),
+                    allPieceBitBoard, gamePhase);
+            piecesBitBoard &= piecesBitBoard - 1;
+        }
+        return activity;
+    }
+
+    // Evaluate the value of pieces in game by going over all of them, used to verify the incremental evaluation
+    // The game phase is counted from the pieces as well
+    int evaluatePieceValueFromScratch(ChessGame game, int eval) {
+        long allPieceBitBoard = game.getAllPieceBitBoard();
+        LinkedList<Piece> list = game.getPieceList();
+
+        int gamePhase = 0;
         for (Piece piece : list)
-            if (piece.getColor())
-                eval += piece.getPieceValue(allPieceBitBoard, gameStage);
-            else
-                eval -= piece.getPieceValue(allPieceBitBoard, gameStage);
+            gamePhase += PieceEvaluationConstants.GAME_PHASE_BY_TYPE[piece.getPieceType()];
+        gamePhase = Math.min(gamePhase, PieceEvaluationConstants.MAX_GAME_PHASE);
 
-        return eval;
+        // For white pieces add to the eval, for black subtract, the activity is tapered for each piece
+        int middleGameValue = 0, endGameValue = 0;
+        for (Piece piece : list) {
+            int sign = piece.getColor() ? 1 : -1;
+            middleGameValue += sign * piece.getPositionValue(GameStatusHandler.MID_GAME);
+            endGameValue += sign * piece.getPositionValue(GameStatusHandler.END_GAME);
+            eval += sign * piece.getActivityValue(allPieceBitBoard, gamePhase);
+        }
+
+        return eval + PieceEvaluation.taperedValue(middleGameValue, endGameValue, gamePhase);
     }
 }
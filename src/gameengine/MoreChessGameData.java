@@ -1,14 +1,17 @@
 package gameengine;
 
 import gamelogic.ChessGame;
-import gamelogic.pieces.Pawn;
+import gamelogic.GameLogicUtilities;
 import gamelogic.pieces.Piece;
+import gamelogic.pieces.PieceMovement;
 
 import java.util.Arrays;
 
 // Class that has even more information about the chess game
 public class MoreChessGameData {
 
+    private static final PieceMovement pieceMovement = new PieceMovement();
+
     private long enemyThreatenedSquare;
     private long myThreatenSquares;
     private long myPawnThreatenSquare;
@@ -18,28 +21,37 @@ public class MoreChessGameData {
     private final long[] enemyThreatenSquareByPieceArray = new long[6];
 
     // Update all the parameters according to the game
+    // The pieces are taken from the bitboard of each piece type, without going over the pieces themselves
     public void updateParameters(ChessGame game) {
         resetElements();
-
-        // For each piece, add the data about it
-        for (Piece piece : game.getPieceList()) {
-            long currentPieceAttackSquare;
-            if (piece.getColor() == game.getPlayerToPlay()) {
-                if (piece instanceof Pawn) {
-                    myPawnMap |= piece.getSquareAsBitBoard();
-                    myPawnThreatenSquare |= ((Pawn) piece).getPawnAttackSquare();
+        boolean playerColor = game.getPlayerToPlay();
+        long allPieceBitBoard = game.getAllPieceBitBoard();
+
+        // For each piece type of each player, add the data about its pieces
+        for (int pieceType = Piece.KING; pieceType <= Piece.QUEEN; pieceType++) {
+            long myPieces = game.getPieceTypeBitBoard(pieceType, playerColor);
+            while (myPieces != 0) {
+                byte square = (byte) Long.numberOfTrailingZeros(myPieces);
+                myPieces &= myPieces - 1;
+                if (pieceType == Piece.PAWN) {
+                    myPawnMap |= GameLogicUtilities.squareAsBitBoard(square);
+                    myPawnThreatenSquare |= pieceMovement.getPawnCaptureSquare(playerColor, square);
                 } else
-                    myThreatenSquares |= piece.getMovesAsBitBoard(game.getAllPieceBitBoard(), 0);
-
-            } else {
-                if (piece instanceof Pawn)
-                    currentPieceAttackSquare = ((Pawn) piece).getPawnAttackSquare();
-                else
-                    currentPieceAttackSquare = piece.getMovesAsBitBoard(game.getAllPieceBitBoard(), 0);
+                    myThreatenSquares |= pieceMovement.getMovesAsBitBoard(pieceType, square, playerColor,
+                            allPieceBitBoard, GameLogicUtilities.EMPTY_BOARD);
+            }
 
-                enemyPieceByPiecesMapArray[piece.getPieceType()] |= piece.getSquareAsBitBoard();
-                enemyThreatenSquareByPieceArray[piece.getPieceType()] |= currentPieceAttackSquare;
-                enemyThreatenedSquare |= piece.getMovesAsBitBoard(game.getAllPieceBitBoard(), 0);
+            long enemyPieces = game.getPieceTypeBitBoard(pieceType, !playerColor);
+            enemyPieceByPiecesMapArray[pieceType] = enemyPieces;
+            while (enemyPieces != 0) {
+                byte square = (byte) Long.numberOfTrailingZeros(enemyPieces);
+                enemyPieces &= enemyPieces - 1;
+                long currentPieceMoves = pieceMovement.getMovesAsBitBoard(pieceType, square, !playerColor,
+                        allPieceBitBoard, GameLogicUtilities.EMPTY_BOARD);
+
+                enemyThreatenSquareByPieceArray[pieceType] |= pieceType == Piece.PAWN
+                        ? pieceMovement.getPawnCaptureSquare(!playerColor, square) : currentPieceMoves;
+                enemyThreatenedSquare |= currentPieceMoves;
             }
         }
     }
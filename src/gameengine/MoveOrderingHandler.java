@@ -1,21 +1,34 @@
 package gameengine;
 
 import gamelogic.ChessGame;
+import gamelogic.EncodedMove;
 import gamelogic.GameLogicUtilities;
 import gamelogic.GameStatusHandler;
-import gamelogic.pieces.King;
-import gamelogic.pieces.Pawn;
+import gamelogic.MoveBuffer;
+import gamelogic.StaticExchangeEvaluation;
 import gamelogic.pieces.Piece;
-import gamelogic.pieces.Rook;
-
-import java.util.Comparator;
-import java.util.LinkedList;
-
-// Class responsible for finding the most likely good moves to play
+import gamelogic.pieces.PieceEvaluation;
+import gamelogic.pieces.PieceMovement;
+
+import java.util.Arrays;
+
+/*
+ Class responsible for finding the most likely good moves to play
+ Each search thread need its own handler, since it keeps data about the game it's currently ordering moves for, and
+ about the moves that caused cutoffs in its search:
+ Captures and promotions that don't lose material by static exchange evaluation (SEE) are ordered by the most
+ valuable captured piece by the least valuable piece first (MVV-LVA), the ones that lose material are ordered last by
+ how much they lose
+ Killer moves - 2 quiet moves of each ply that caused a cutoff in another position of the same ply
+ Quiet moves are ordered by the history of cutoffs they caused anywhere in the search, and by their assumed value
+ */
 public class MoveOrderingHandler {
 
+    private static final PieceMovement pieceMovement = new PieceMovement();
+    private static final PieceEvaluation pieceEvaluation = new PieceEvaluation();
+    private final StaticExchangeEvaluation staticExchangeEvaluation = new StaticExchangeEvaluation();
     private static final long ROOK_FILE_MASK = 0x8080808080808080L;
-    private static final MoreChessGameData gameData = new MoreChessGameData();
+    private final MoreChessGameData gameData = new MoreChessGameData();
     private static final int BACK_MOVE_BONUS = 200;
     private static final int NO_VALUE_MOVE_BONUS = -500;
     private static final int CHECK_BONUS = 200;
@@ -28,59 +41,150 @@ public class MoveOrderingHandler {
     private static final int PROMOTION_TO_QUEEN = 800;
     private static final int PROMOTION_NOT_TO_A_QUEEN_BONUS = 800;
 
-    // Receive a list of moves and current game
-    // Return a list where likely good moves are at the top of the list and bad at the end
-    public static void sortMoveByOrderValue(ChessGame game, LinkedList<PieceMove> pieceMoveList) {
+    private static final int VICTIM_VALUE_MULTIPLIER = 8;
+    private static final int PROMOTION_VALUE_MULTIPLIER = 16;
+    // The history value of a move is at most this, after it the history of all moves is halved
+    private static final int MAX_HISTORY_VALUE = 100_000;
+    private static final int HISTORY_AGING_DIVIDER = 8;
+    public static final int NUMBER_OF_KILLER_MOVES = 2;
+
+    // Killer moves of each ply, and the history of cutoffs of each move by color, current square and target square
+    private final int[][] killerMoves;
+    private final int[][][] historyTable = new int[2][GameLogicUtilities.BOARD_SIZE][GameLogicUtilities.BOARD_SIZE];
+
+    // Builder, keep killer moves for each ply of a search up to the max ply given
+    public MoveOrderingHandler(int maxPly) {
+        killerMoves = new int[maxPly][NUMBER_OF_KILLER_MOVES];
+    }
+
+    // Set the order value of each capture and promotion in the buffer
+    // The order value of a move that doesn't lose material is positive, and of a move that loses material is negative
+    public void setCapturesOrderValue(ChessGame game, MoveBuffer moveBuffer) {
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            int move = moveBuffer.getMove(i);
+            int exchangeValue = staticExchangeEvaluation.evaluate(game, move);
+            moveBuffer.setMoveValue(i, exchangeValue < 0 ? exchangeValue : captureOrderValue(move));
+        }
+    }
+
+    // Set the order value of each quiet move in the buffer, by its history and its assumed value
+    public void setQuietMovesOrderValue(ChessGame game, MoveBuffer moveBuffer) {
+        // The data about the game is needed only to assume the value of quiet moves
         gameData.updateParameters(game);
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            int move = moveBuffer.getMove(i);
+            moveBuffer.setMoveValue(i, getHistoryValue(move, game.getPlayerToPlay()) + assumeMoveValue(move, game));
+        }
+    }
+
+    // Return the killer move of the ply on the index given, or EncodedMove.NO_MOVE if there is none
+    public int getKillerMove(int ply, int index) {
+        return killerMoves[ply][index];
+    }
+
+    // Return the order value of a capture or promotion, the most valuable victim by the least valuable attacker
+    // The piece types are ordered by value, from the pawn to the queen, and the king that can't be captured
+    // The order value is always positive, since the victim is at least a pawn and the attacker at most the king
+    private int captureOrderValue(int move) {
+        int orderValue = 0;
+        if (EncodedMove.isCapture(move))
+            orderValue += EncodedMove.getCapturedPieceType(move) * VICTIM_VALUE_MULTIPLIER
+                    - pieceTypeOrderValue(EncodedMove.getPieceToMoveType(move));
+        if (EncodedMove.isPromotion(move))
+            orderValue += EncodedMove.getPromotionPieceType(move) * PROMOTION_VALUE_MULTIPLIER;
+        return orderValue;
+    }
 
-        for (PieceMove pieceMove : pieceMoveList)
-            pieceMove.setMoveAssumedValue(-assumeMoveValue(pieceMove, game));
+    // Return the value of the piece type for ordering, the king is the most valuable attacker
+    private int pieceTypeOrderValue(int pieceType) {
+        return pieceType == Piece.KING ? Piece.QUEEN + 1 : pieceType;
+    }
+
+    // A move caused a beta cutoff, if it's a quiet move save it as a killer move of the ply, and add to its history
+    // Deeper searches give a bigger bonus, since the cutoff saved searching a bigger tree
+    public void updateOnBetaCutoff(int move, int ply, int depth, boolean color) {
+        if (EncodedMove.isCapture(move) || EncodedMove.isPromotion(move))
+            return;
+
+        if (killerMoves[ply][0] != move) {
+            killerMoves[ply][1] = killerMoves[ply][0];
+            killerMoves[ply][0] = move;
+        }
 
-        pieceMoveList.sort(Comparator.comparingInt(PieceMove::getMoveAssumedValue));
+        int[] historyOfSquare = historyTable[color ? 1 : 0][EncodedMove.getCurrentSquare(move)];
+        historyOfSquare[EncodedMove.getTargetSquare(move)] += depth * depth;
+        if (historyOfSquare[EncodedMove.getTargetSquare(move)] > MAX_HISTORY_VALUE)
+            ageHistory(2);
     }
 
-    // try to guess how good a move will be, and set pieceMove moveOrderValue to that value
-    private static int assumeMoveValue(PieceMove pieceMove, ChessGame game) {
+    // Start a new search, the killer moves are of the previous position, and the history is aged so the new search
+    // can build its own
+    public void newSearch() {
+        for (int[] killerMovesOfPly : killerMoves)
+            Arrays.fill(killerMovesOfPly, EncodedMove.NO_MOVE);
+        ageHistory(HISTORY_AGING_DIVIDER);
+    }
+
+    // Divide the history of all the moves by the divider
+    private void ageHistory(int divider) {
+        for (int[][] historyOfColor : historyTable)
+            for (int[] historyOfSquare : historyOfColor)
+                for (int i = 0; i < historyOfSquare.length; i++)
+                    historyOfSquare[i] /= divider;
+    }
+
+    // Return the history value of a move of the player of the color given
+    private int getHistoryValue(int move, boolean color) {
+        return historyTable[color ? 1 : 0][EncodedMove.getCurrentSquare(move)][EncodedMove.getTargetSquare(move)];
+    }
+
+    // try to guess how good a move will be
+    private int assumeMoveValue(int move, ChessGame game) {
         int assumedValue = 0;
-        boolean isPawn = pieceMove.getPieceToMove() instanceof Pawn;
-        long targetSquareBitBoard = GameLogicUtilities.squareAsBitBoard(pieceMove.getTargetSquare());
-        long currentSquareBitBoard = GameLogicUtilities.squareAsBitBoard(pieceMove.getCurrentPieceSquare());
-        long newSquareAttackSquares = getNewSquareAttackSquare(pieceMove.getPieceToMove(), game, pieceMove);
+        // The piece to move is of the player to play, its type is part of the move
+        int pieceType = EncodedMove.getPieceToMoveType(move);
+        boolean color = game.getPlayerToPlay();
+        boolean isPawn = pieceType == Piece.PAWN;
+        long targetSquareBitBoard = GameLogicUtilities.squareAsBitBoard(EncodedMove.getTargetSquare(move));
+        long currentSquareBitBoard = GameLogicUtilities.squareAsBitBoard(EncodedMove.getCurrentSquare(move));
 
         // Special case if it's a king
-        if (pieceMove.getPieceToMove() instanceof King)
-            return assumeKingMoveValue(pieceMove, game);
+        if (pieceType == Piece.KING)
+            return assumeKingMoveValue(move, game);
+
+        int pieceToMoveValue = pieceEvaluation.evaluatePiece(pieceType, EncodedMove.getCurrentSquare(move), color,
+                game.getAllPieceBitBoard(), game.getGamePhase());
+        long newSquareAttackSquares = getNewSquareAttackSquare(pieceType, color, game, move);
 
         // Special bonus for pawns
         if (isPawn)
-            assumedValue = assumePawnSpecialBonus(pieceMove, targetSquareBitBoard, newSquareAttackSquares);
+            assumedValue = assumePawnSpecialBonus(move, targetSquareBitBoard, newSquareAttackSquares);
 
         // Special bonus for rook
-        if (pieceMove.getPieceToMove() instanceof Rook)
+        if (pieceType == Piece.ROOK)
             assumedValue = assumeRookSpecialBonus(targetSquareBitBoard, currentSquareBitBoard);
 
-        assumedValue += assumeCaptureAndIfPieceIsThreaten(pieceMove, game, isPawn, targetSquareBitBoard,
-                currentSquareBitBoard);
+        assumedValue += assumeCaptureAndIfPieceIsThreaten(move, game, isPawn, pieceToMoveValue, currentSquareBitBoard);
 
         // Usually going back is not good
-        if (isBackwardMove(pieceMove) && game.getGameStage() != GameStatusHandler.END_GAME)
+        if (isBackwardMove(move, color) && game.getGameStage() != GameStatusHandler.END_GAME)
             assumedValue -= BACK_MOVE_BONUS;
 
         // New square attacking bonuses
         if (!isPawn)
-            assumedValue += newSquareAttackingBonus(pieceMove, newSquareAttackSquares);
+            assumedValue += newSquareAttackingBonus(pieceType, pieceToMoveValue, newSquareAttackSquares);
 
         // If the assumed value is 0, probably and a move worth checking  
         return assumedValue == 0 ? NO_VALUE_MOVE_BONUS : assumedValue;
     }
 
     // Assume the move value of the king
-    private static int assumeKingMoveValue(PieceMove pieceMove, ChessGame game) {
-        boolean isCastlingMove = game.isCastlingMove(pieceMove.getTargetSquare(), pieceMove.getPieceToMove());
+    private int assumeKingMoveValue(int move, ChessGame game) {
+        boolean isCastlingMove = EncodedMove.isCastling(move);
         int assumedValue = 0;
 
         // If check, probably good idea to move with the king
-        if (game.getGameStatus() == GameStatusHandler.CHECK)
+        if (game.isPlayerChecked())
             assumedValue += CHECK_BONUS;
 
         // If it's not end game, and not a castling move, probably bad idea to move the king
@@ -91,10 +195,9 @@ public class MoveOrderingHandler {
         if (game.getGameStage() == GameStatusHandler.END_GAME)
             assumedValue += MOVE_KING_END_GAME_BONUS;
 
-        // If it's a free capture, probably good idea
-        if (freeCapture(pieceMove, game, gameData.getAllEnemyThreatenSquare()))
-            assumedValue += game.getPiece(pieceMove.getTargetSquare()).getPieceValue(game.getAllPieceBitBoard()
-                    , game.getGameStage());
+        // If it's a capture, probably good idea, the king can't be captured back since it only moves to safe squares
+        if (EncodedMove.isCapture(move))
+            assumedValue += staticExchangeEvaluation.evaluate(game, move);
 
         // If there is no good reason to move the king, then it's probably an awful idea to move it
         if (assumedValue == 0)
@@ -103,17 +206,8 @@ public class MoveOrderingHandler {
             return assumedValue;
     }
 
-    // Check if this move makes a free capture
-    private static boolean freeCapture(PieceMove pieceMove, ChessGame game, long threatenSquare) {
-        long targetSquareBitBoard = GameLogicUtilities.squareAsBitBoard
-                (pieceMove.getTargetSquare());
-        // Check if the king can take a piece, if yes it's good
-        return (((game.getEnemyBitBoard() & targetSquareBitBoard) != 0)
-                && ((targetSquareBitBoard & threatenSquare) == 0));
-    }
-
     // Special bonuses for the rook
-    private static int assumeRookSpecialBonus(long targetSquareBitBoard, long currentSquareBitBoard) {
+    private int assumeRookSpecialBonus(long targetSquareBitBoard, long currentSquareBitBoard) {
         int bonus = 0;
 
         // Find the file of the target square
@@ -139,13 +233,12 @@ public class MoveOrderingHandler {
     }
 
     // Special bonuses for the pawn
-    private static int assumePawnSpecialBonus(PieceMove pieceMove, long targetSquareBitBoard,
-                                              long newSquareAttackSquares) {
+    private int assumePawnSpecialBonus(int move, long targetSquareBitBoard, long newSquareAttackSquares) {
         int assumedValue = 0;
 
         // Promotion to queen is almost always good
-        if (pieceMove.isItPromotionMove())
-            if (pieceMove.getTypeOfPieceToPromoteTo() == ChessGame.PROMOTE_TO_QUEEN)
+        if (EncodedMove.isPromotion(move))
+            if (EncodedMove.getPromotionPieceType(move) == Piece.QUEEN)
                 assumedValue = PROMOTION_TO_QUEEN;
             else
                 // It's almost never a good idea to promote to something that's not a queen
@@ -167,59 +260,37 @@ public class MoveOrderingHandler {
         return assumedValue;
     }
 
-    // Check if it's a backwards move
-    private static boolean isBackwardMove(PieceMove pieceMove) {
+    // Check if it's a backwards move of a piece of the color given
+    private boolean isBackwardMove(int move, boolean color) {
         // Check the difference between the rows of the current square and target square
-        int columnDifference = (pieceMove.getCurrentPieceSquare() / 8) - (pieceMove.getTargetSquare() / 8);
-        if (pieceMove.getPieceToMove().getColor())
+        int columnDifference = (EncodedMove.getCurrentSquare(move) / 8) - (EncodedMove.getTargetSquare(move) / 8);
+        if (color)
             return columnDifference > 0;
         else
             return columnDifference < 0;
     }
 
-    // Return the assumed value of moving the piece from its position to the target square based on if the piece is
-    // threatened and if it can take a piece and if it's likely that it will be taken bck
-    private static int assumeCaptureAndIfPieceIsThreaten(PieceMove pieceMove, ChessGame game, Boolean isPawn,
-                                                         long targetSquareBitBoard, long currentSquareBitBoard) {
-        int assumedValue = 0;
-        long enemyBitBoard = game.getEnemyBitBoard();
-
-        // Check if the move capture enemy piece, the higher the piece value the better
-        if ((enemyBitBoard & targetSquareBitBoard) != 0)
-            assumedValue += game.getPiece(pieceMove.getTargetSquare()).getPieceValue(game.getAllPieceBitBoard(),
-                    game.getGameStage());
-
-        // Capture bonus higher for pawn
-        if (isPawn && !(game.getPiece(pieceMove.getTargetSquare()) instanceof Pawn))
-            assumedValue += assumedValue;
-
-        // Moving to a square threatened by a pawn is very bad
-        if ((targetSquareBitBoard & gameData.getEnemyPawnThreatenSquare()) != 0)
-            assumedValue -= pieceMove.getPieceToMoveValue() * 1.5;
-
-        // Moving to a square threatened by a piece is very bad
-        if ((targetSquareBitBoard & gameData.getEnemyWithoutSamePieceTypeAndWithoutPawn(0)) != 0) {
-            if (!isPawn)
-                assumedValue -= pieceMove.getPieceToMoveValue();
-            else
-                assumedValue -= pieceMove.getPieceToMoveValue() * 1.25;
-
-
-        }
+    // Return the assumed value of moving the piece from its position to the target square based on the exchange on the
+    // target square, and on if the piece is threatened on its current square
+    private int assumeCaptureAndIfPieceIsThreaten(int move, ChessGame game, boolean isPawn, int pieceToMoveValue,
+                                                  long currentSquareBitBoard) {
+        // The material the move wins or loses after the exchange on the target square, a capture adds the captured
+        // piece, and moving to a square where the piece is captured for less than it's worth is very bad
+        int assumedValue = staticExchangeEvaluation.evaluate(game, move);
 
         // If piece is threatened by a pawn, it's likely very good to move it
         if ((currentSquareBitBoard & gameData.getEnemyPawnThreatenSquare()) != 0)
-            assumedValue += pieceMove.getPieceToMoveValue() * 1.25;
+            assumedValue += pieceToMoveValue * 1.25;
 
         // If piece is threatened by a piece, it's likely good to move it
         if ((currentSquareBitBoard & gameData.getEnemyThreatenedSquareWithoutPawnThreatenSquare()) != 0)
             // If piece is not protected it's better to move, if protected less
             if ((currentSquareBitBoard & gameData.getMyProtectedSquares()) == 0)
-                assumedValue += pieceMove.getPieceToMoveValue();
+                assumedValue += pieceToMoveValue;
             else {
                 // If protected and not a pawn
                 if (!isPawn)
-                    assumedValue += pieceMove.getPieceToMoveValue() / 2;
+                    assumedValue += pieceToMoveValue / 2;
             }
 
         return assumedValue;
@@ -227,33 +298,32 @@ public class MoveOrderingHandler {
 
 
     // Given the new square the piece can go after it moved, check what it can attack
-    private static int newSquareAttackingBonus(PieceMove pieceMove, long newSquareAttackSquares) {
+    private int newSquareAttackingBonus(int pieceType, int pieceToMoveValue, long newSquareAttackSquares) {
         int bonus = 0;
-        Piece pieceToMove = pieceMove.getPieceToMove();
 
         long[] mapArray = gameData.getEnemyPieceByPiecesMapArray();
         // If threaten a piece who can't attack piece back, big bonus
         for (int i = 0; i < mapArray.length; i++) {
-            if (pieceToMove.getPieceType() != i) {
+            if (pieceType != i) {
                 if ((newSquareAttackSquares & mapArray[i]) != 0)
                     if (((newSquareAttackSquares & mapArray[i]) & gameData.getAllEnemyThreatenSquare()) == 0)
                         bonus += gameData.threatBonusByPieceType(i);
                     else
                         bonus += gameData.threatBonusByPieceType(i) / 2;
             } else if ((newSquareAttackSquares & mapArray[i]) != 0)
-                bonus -= pieceMove.getPieceToMoveValue();
+                bonus -= pieceToMoveValue;
         }
         return bonus;
     }
 
-    // TODO: add documents
-    private static long getNewSquareAttackSquare(Piece pieceToMove, ChessGame game, PieceMove pieceMove) {
-        pieceToMove.setSquare(pieceMove.getTargetSquare());
-        long newSquareAttackSquares = pieceToMove.getMovesAsBitBoard(game.getAllPieceBitBoard(), game.getSameColorPieceBitBoard());
-        if (pieceToMove instanceof Pawn)
-            newSquareAttackSquares = ((Pawn) pieceToMove).getPawnAttackSquare();
-        pieceToMove.setSquare(pieceMove.getCurrentPieceSquare());
+    // Given the type and color of a piece and a move of it, return the squares it will attack from its target square
+    // as bitboard. Found by the type of the piece, so the piece itself is not moved to the target square
+    private long getNewSquareAttackSquare(int pieceType, boolean color, ChessGame game, int move) {
+        byte targetSquare = EncodedMove.getTargetSquare(move);
+        if (pieceType == Piece.PAWN)
+            return pieceMovement.getPawnCaptureSquare(color, targetSquare);
 
-        return newSquareAttackSquares;
+        return pieceMovement.getMovesAsBitBoard(pieceType, targetSquare, color, game.getAllPieceBitBoard(),
+                game.getSameColorPieceBitBoard());
     }
 }
@@ -0,0 +1,167 @@
+package gameengine;
+
+import gamelogic.ChessGame;
+import gamelogic.EncodedMove;
+import gamelogic.GameLogicUtilities;
+import gamelogic.MoveBuffer;
+import gamelogic.MoveGenerator;
+import gamelogic.pieces.Piece;
+
+/*
+ Class that gives the search the moves of a position one at a time, in stages, from the most likely to be good:
+ 1. The best move stored in the transposition table for the position
+ 2. Captures and promotions that don't lose material by static exchange evaluation, ordered by MVV-LVA
+ 3. The killer moves of the ply
+ 4. Quiet moves, ordered by their history and assumed value
+ 5. Captures and promotions that lose material, ordered by how much they lose
+ Each stage generates and orders its moves only when the stage before it is over, and the moves are picked one at a
+ time instead of sorting all of them. In a position where one of the first moves causes a cutoff, the quiet moves
+ are never generated.
+ Each ply of the search needs its own picker, since the positions of the plies before it are still being searched
+ */
+public class MovePicker {
+
+    private static final int TRANSPOSITION_TABLE_MOVE_STAGE = 0;
+    private static final int GENERATE_CAPTURES_STAGE = 1;
+    private static final int CAPTURES_STAGE = 2;
+    private static final int KILLER_MOVES_STAGE = 3;
+    private static final int GENERATE_QUIET_MOVES_STAGE = 4;
+    private static final int QUIET_MOVES_STAGE = 5;
+    private static final int LOSING_CAPTURES_STAGE = 6;
+    private static final int NO_MORE_MOVES_STAGE = 7;
+
+    private final MoveOrderingHandler moveOrderingHandler;
+    // The captures are kept in their own buffer, since the losing captures are picked after the quiet moves
+    private final MoveBuffer capturesBuffer = new MoveBuffer();
+    private final MoveBuffer quietMovesBuffer = new MoveBuffer();
+    private final int[] killerMoves = new int[MoveOrderingHandler.NUMBER_OF_KILLER_MOVES];
+
+    private ChessGame game;
+    private int ply;
+    private int transpositionTableMove;
+    private long squaresThreatenByEnemy;
+    private boolean isSquaresThreatenByEnemyCalculated;
+    private int stage;
+    private int moveIndex;
+    private int captureIndex;
+
+    // Builder, the moves are ordered by the move ordering handler given
+    public MovePicker(MoveOrderingHandler moveOrderingHandler) {
+        this.moveOrderingHandler = moveOrderingHandler;
+    }
+
+    // Start picking the moves of the game, with the best move stored in the transposition table for the position
+    // (can be EncodedMove.NO_MOVE) and the ply of the position in the search
+    public void initialize(ChessGame game, int transpositionTableMove, int ply) {
+        this.game = game;
+        this.ply = ply;
+        isSquaresThreatenByEnemyCalculated = false;
+        this.transpositionTableMove = createLegalMove(transpositionTableMove);
+        stage = TRANSPOSITION_TABLE_MOVE_STAGE;
+        moveIndex = 0;
+        captureIndex = 0;
+    }
+
+    // Return the next move to search, or EncodedMove.NO_MOVE if all the moves were picked
+    // Moves that were picked in a stage before are skipped
+    public int nextMove() {
+        while (true) {
+            switch (stage) {
+                case TRANSPOSITION_TABLE_MOVE_STAGE -> {
+                    stage = GENERATE_CAPTURES_STAGE;
+                    if (transpositionTableMove != EncodedMove.NO_MOVE)
+                        return transpositionTableMove;
+                }
+                case GENERATE_CAPTURES_STAGE -> {
+                    MoveGenerator.generateLegalCapturesAndPromotions(game, capturesBuffer,
+                            getSquaresThreatenByEnemy());
+                    moveOrderingHandler.setCapturesOrderValue(game, capturesBuffer);
+                    captureIndex = 0;
+                    stage = CAPTURES_STAGE;
+                }
+                case CAPTURES_STAGE -> {
+                    // The captures are picked by their order value, the first one that loses material ends the stage
+                    while (captureIndex < capturesBuffer.size()) {
+                        int move = capturesBuffer.pickBestMove(captureIndex);
+                        if (capturesBuffer.getMoveValue(captureIndex) < 0)
+                            break;
+                        captureIndex++;
+                        if (!EncodedMove.isSameMove(move, transpositionTableMove))
+                            return move;
+                    }
+                    moveIndex = 0;
+                    stage = KILLER_MOVES_STAGE;
+                }
+                case KILLER_MOVES_STAGE -> {
+                    // A killer move was found in another position, use it only if it's a legal quiet move in this one
+                    while (moveIndex < killerMoves.length) {
+                        int killerMove = createLegalMove(moveOrderingHandler.getKillerMove(ply, moveIndex));
+                        boolean isLegalQuietMove = killerMove != EncodedMove.NO_MOVE
+                                && !EncodedMove.isCapture(killerMove) && !EncodedMove.isPromotion(killerMove)
+                                && !EncodedMove.isSameMove(killerMove, transpositionTableMove);
+                        killerMoves[moveIndex++] = isLegalQuietMove ? killerMove : EncodedMove.NO_MOVE;
+                        if (isLegalQuietMove)
+                            return killerMove;
+                    }
+                    stage = GENERATE_QUIET_MOVES_STAGE;
+                }
+                case GENERATE_QUIET_MOVES_STAGE -> {
+                    MoveGenerator.generateLegalQuietMoves(game, quietMovesBuffer, getSquaresThreatenByEnemy());
+                    moveOrderingHandler.setQuietMovesOrderValue(game, quietMovesBuffer);
+                    moveIndex = 0;
+                    stage = QUIET_MOVES_STAGE;
+                }
+                case QUIET_MOVES_STAGE -> {
+                    while (moveIndex < quietMovesBuffer.size()) {
+                        int move = quietMovesBuffer.pickBestMove(moveIndex++);
+                        if (!isPickedAlready(move))
+                            return move;
+                    }
+                    stage = LOSING_CAPTURES_STAGE;
+                }
+                case LOSING_CAPTURES_STAGE -> {
+                    while (captureIndex < capturesBuffer.size()) {
+                        int move = capturesBuffer.pickBestMove(captureIndex++);
+                        if (!EncodedMove.isSameMove(move, transpositionTableMove))
+                            return move;
+                    }
+                    stage = NO_MORE_MOVES_STAGE;
+                }
+                default -> {
+                    return EncodedMove.NO_MOVE;
+                }
+            }
+        }
+    }
+
+    // Given a move identified by its first 16 bits, return it fully encoded if it's legal, otherwise NO_MOVE
+    // The squares threatened by the enemy limit only the moves of the king, for a move of another piece they are not
+    // calculated, so a transposition table move that causes a cutoff doesn't need them
+    private int createLegalMove(int shortMove) {
+        boolean isKingMove = shortMove != EncodedMove.NO_MOVE
+                && game.getPieceType(EncodedMove.getCurrentSquare(shortMove)) == Piece.KING;
+        return MoveGenerator.createLegalMove(game, shortMove,
+                isKingMove ? getSquaresThreatenByEnemy() : GameLogicUtilities.EMPTY_BOARD);
+    }
+
+    // Return the squares threatened by the enemy, they are calculated the first time they are needed in the position
+    private long getSquaresThreatenByEnemy() {
+        if (!isSquaresThreatenByEnemyCalculated) {
+            squaresThreatenByEnemy = game.getBitBoardOfSquaresThreatenByEnemy();
+            isSquaresThreatenByEnemyCalculated = true;
+        }
+        return squaresThreatenByEnemy;
+    }
+
+    // Return if a quiet move was already picked, as the transposition table move or as a killer move
+    private boolean isPickedAlready(int move) {
+        if (EncodedMove.isSameMove(move, transpositionTableMove))
+            return true;
+
+        for (int killerMove : killerMoves)
+            if (EncodedMove.isSameMove(move, killerMove))
+                return true;
+
+        return false;
+    }
+}
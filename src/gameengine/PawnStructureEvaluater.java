@@ -0,0 +1,177 @@
+package gameengine;
+
+import gamelogic.ChessGame;
+import gamelogic.GameLogicUtilities;
+import gamelogic.pieces.Piece;
+import gamelogic.pieces.PieceEvaluation;
+
+/*
+    Class responsible for evaluating the pawn structure of a position, the higher the eval, the better it is for white:
+    Doubled pawn - a pawn with a pawn of the same color in front of it on its file
+    Isolated pawn - a pawn with no pawns of the same color on the files next to it
+    Passed pawn - a pawn with no enemy pawns in front of it on its file or on the files next to it, the closer it is to
+    promote, the bigger the bonus
+    Backward pawn - a pawn that all the pawns of the same color on the files next to it are in front of it, and the
+    square in front of it is attacked by an enemy pawn, so it can't advance safely
+    Each term has a middle game and an end game value, tapered by the game phase.
+
+    The pawn structure changes only on pawn moves and pawn captures, so the evaluation is stored in a pawn hash table
+    by the pawn hash of the position, and most positions of a search only look it up.
+    The table is a power of 2 number of entries, stored in a single array of longs. Each entry is 2 longs: the pawn hash
+    xor the data, and the data (the middle game and end game values). Like the transposition table, an entry that was
+    half overwritten by another thread is simply a miss, so the table can be shared between threads without a lock.
+ */
+public class PawnStructureEvaluater {
+
+    public static final int DEFAULT_TABLE_SIZE_MB = 2;
+
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int BYTES_PER_LONG = Long.BYTES;
+    private static final int BYTES_IN_MEGABYTE = 1024 * 1024;
+    private static final int END_GAME_VALUE_SHIFT = 32;
+    private static final long VALUE_MASK = 0xFFFFFFFFL;
+
+    // The files of the board, the h file is on the first bit of each row and the a file on the last
+    private static final long H_FILE = 0x0101010101010101L;
+    private static final long A_FILE = 0x8080808080808080L;
+
+    // The values of the terms in the middle game and in the end game
+    private static final int DOUBLED_PAWN_MIDDLE_GAME = -10;
+    private static final int DOUBLED_PAWN_END_GAME = -20;
+    private static final int ISOLATED_PAWN_MIDDLE_GAME = -10;
+    private static final int ISOLATED_PAWN_END_GAME = -15;
+    private static final int BACKWARD_PAWN_MIDDLE_GAME = -8;
+    private static final int BACKWARD_PAWN_END_GAME = -10;
+    // The bonus of a passed pawn by its row, counted from the side of the pawn color
+    private static final int[] PASSED_PAWN_MIDDLE_GAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_PAWN_END_GAME = {0, 10, 15, 25, 40, 65, 100, 0};
+
+    private final long[] pawnHashTable;
+    private final int entryMask;
+
+    // Builder, create a table that take at most sizeInMegabytes of memory
+    public PawnStructureEvaluater(int sizeInMegabytes) {
+        long numberOfEntries = (long) sizeInMegabytes * BYTES_IN_MEGABYTE / (LONGS_PER_ENTRY * BYTES_PER_LONG);
+        // Round down to a power of 2, so the index of an entry can be taken from the bits of the hash
+        int powerOfTwoEntries = (int) Long.highestOneBit(Math.max(1, Math.min(numberOfEntries,
+                Integer.MAX_VALUE / LONGS_PER_ENTRY)));
+
+        pawnHashTable = new long[powerOfTwoEntries * LONGS_PER_ENTRY];
+        entryMask = powerOfTwoEntries - 1;
+    }
+
+    // Given a chess game, return the evaluation of its pawn structure tapered by the game phase
+    // If the pawn structure is in the table return its values, otherwise evaluate it and store it
+    public int evaluatePawnStructure(ChessGame game) {
+        long pawnHash = game.getPawnHash();
+        int entryIndex = ((int) pawnHash & entryMask) * LONGS_PER_ENTRY;
+        long data = pawnHashTable[entryIndex + 1];
+
+        // An empty entry matches only a position without pawns, which has no pawn structure value anyway
+        if ((pawnHashTable[entryIndex] ^ data) != pawnHash) {
+            long whitePawns = game.getPieceTypeBitBoard(Piece.PAWN, GameLogicUtilities.WHITE);
+            long blackPawns = game.getPieceTypeBitBoard(Piece.PAWN, GameLogicUtilities.BLACK);
+            long whiteValues = evaluatePawnsOfColor(whitePawns, blackPawns, GameLogicUtilities.WHITE);
+            long blackValues = evaluatePawnsOfColor(blackPawns, whitePawns, GameLogicUtilities.BLACK);
+
+            data = packValues(getMiddleGameValue(whiteValues) - getMiddleGameValue(blackValues),
+                    getEndGameValue(whiteValues) - getEndGameValue(blackValues));
+            pawnHashTable[entryIndex] = pawnHash ^ data;
+            pawnHashTable[entryIndex + 1] = data;
+        }
+
+        return PieceEvaluation.taperedValue(getMiddleGameValue(data), getEndGameValue(data), game.getGamePhase());
+    }
+
+    // Given the pawns of a color and the enemy pawns as bitboards, return the middle game and end game values of the
+    // pawns of that color, packed into a long like the data of an entry
+    private long evaluatePawnsOfColor(long pawns, long enemyPawns, boolean color) {
+        int middleGameValue = 0, endGameValue = 0;
+        long enemyPawnAttacks = getPawnAttacks(enemyPawns, !color);
+
+        long pawnsToEvaluate = pawns;
+        while (pawnsToEvaluate != 0) {
+            int square = Long.numberOfTrailingZeros(pawnsToEvaluate);
+            pawnsToEvaluate &= pawnsToEvaluate - 1;
+
+            long pawn = GameLogicUtilities.squareAsBitBoard(square);
+            long squareInFront = color ? pawn << GameLogicUtilities.BOARD_EDGE_SIZE
+                    : pawn >>> GameLogicUtilities.BOARD_EDGE_SIZE;
+            long frontSquares = color ? fillUp(squareInFront) : fillDown(squareInFront);
+            long squaresBehindAndLevel = color ? fillDown(pawn) : fillUp(pawn);
+            long file = fillUp(pawn) | fillDown(pawn);
+
+            boolean isDoubled = (frontSquares & pawns) != 0;
+            boolean isIsolated = (getAdjacentFiles(file) & pawns) == 0;
+            boolean isPassed = ((frontSquares | getAdjacentFiles(frontSquares)) & enemyPawns) == 0;
+            // Can't be supported by the pawns next to it, and the square in front of it is attacked
+            boolean isBackward = !isIsolated && !isPassed && (getAdjacentFiles(squaresBehindAndLevel) & pawns) == 0
+                    && (squareInFront & enemyPawnAttacks) != 0;
+
+            if (isDoubled) {
+                middleGameValue += DOUBLED_PAWN_MIDDLE_GAME;
+                endGameValue += DOUBLED_PAWN_END_GAME;
+            }
+            if (isIsolated) {
+                middleGameValue += ISOLATED_PAWN_MIDDLE_GAME;
+                endGameValue += ISOLATED_PAWN_END_GAME;
+            }
+            if (isBackward) {
+                middleGameValue += BACKWARD_PAWN_MIDDLE_GAME;
+                endGameValue += BACKWARD_PAWN_END_GAME;
+            }
+            // A doubled pawn is passed only if it's the front pawn
+            if (isPassed && !isDoubled) {
+                int row = GameLogicUtilities.getRowOfSquare((byte) square);
+                int rowFromColorSide = color ? row : GameLogicUtilities.BOARD_EDGE_SIZE - 1 - row;
+                middleGameValue += PASSED_PAWN_MIDDLE_GAME[rowFromColorSide];
+                endGameValue += PASSED_PAWN_END_GAME[rowFromColorSide];
+            }
+        }
+        return packValues(middleGameValue, endGameValue);
+    }
+
+    // Given a middle game value and an end game value, return them packed into a long, the middle game value on the
+    // low 32 bits and the end game value on the high 32 bits
+    private static long packValues(int middleGameValue, int endGameValue) {
+        return (middleGameValue & VALUE_MASK) | (long) endGameValue << END_GAME_VALUE_SHIFT;
+    }
+
+    // Given packed values, return the middle game value
+    private static int getMiddleGameValue(long values) {
+        return (int) values;
+    }
+
+    // Given packed values, return the end game value
+    private static int getEndGameValue(long values) {
+        return (int) (values >>> END_GAME_VALUE_SHIFT);
+    }
+
+    // Given a bitboard, return it with all the squares above each square on its file (white side to black side)
+    private static long fillUp(long bitBoard) {
+        bitBoard |= bitBoard << 8;
+        bitBoard |= bitBoard << 16;
+        bitBoard |= bitBoard << 32;
+        return bitBoard;
+    }
+
+    // Given a bitboard, return it with all the squares below each square on its file (black side to white side)
+    private static long fillDown(long bitBoard) {
+        bitBoard |= bitBoard >>> 8;
+        bitBoard |= bitBoard >>> 16;
+        bitBoard |= bitBoard >>> 32;
+        return bitBoard;
+    }
+
+    // Given a bitboard, return the squares next to its squares on the files to the left and to the right
+    private static long getAdjacentFiles(long bitBoard) {
+        return ((bitBoard << 1) & ~H_FILE) | ((bitBoard >>> 1) & ~A_FILE);
+    }
+
+    // Given pawns of a color as bitboard, return the squares they attack
+    private static long getPawnAttacks(long pawns, boolean color) {
+        long pawnsInFront = color ? pawns << GameLogicUtilities.BOARD_EDGE_SIZE
+                : pawns >>> GameLogicUtilities.BOARD_EDGE_SIZE;
+        return getAdjacentFiles(pawnsInFront);
+    }
+}
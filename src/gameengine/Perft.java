@@ -1,8 +1,11 @@
 package gameengine;
 
 import gamelogic.ChessGame;
+import gamelogic.MoveBuffer;
+import gamelogic.MoveGenerator;
+import gamelogic.ZobristHashing;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 
 // Class responsible for Perft - "performance test, move path enumeration" for debugging purposes, and checking that
 // The game only find legal moves
@@ -17,6 +20,10 @@ public class Perft {
 
     private static final int[] depthArray = {7, 6, 8, 6, 5, 6};
 
+    private static final int STARTING_DEPTH_SEARCH = 2;
+    private static final long SECOND_TO_MILLISECOND_MULTIPLIER = 1000;
+    private static final long WARM_UP_SEARCH_TIME_MILLISECOND = 1000;
+
     // This function will test the games' logic on 6 known perft result
     public static void generalTest() {
         ChessGame game = new ChessGame("");
@@ -29,22 +36,119 @@ public class Perft {
         }
     }
 
+    // This function will test the search speed of the engine on the perft positions, with the number of threads given
+    // For each position search for the time given, and print how many nodes per second the engine searched
+    // The positions are searched shortly on 1 thread before, so the measured searches run compiled code and not the
+    // interpreter, whatever the number of threads is
+    public static void searchSpeedTest(int numberOfThreads, int searchTimeSecond) {
+        GameEngine gameEngine = new GameEngine();
+        for (String position : perftArray) {
+            if (!searchForTime(gameEngine, position, 1, WARM_UP_SEARCH_TIME_MILLISECOND))
+                return;
+        }
+
+        long totalNodesPerSecond = 0;
+        for (int i = 0; i < perftArray.length; i++) {
+            if (!searchForTime(gameEngine, perftArray[i], numberOfThreads,
+                    searchTimeSecond * SECOND_TO_MILLISECOND_MULTIPLIER))
+                return;
+
+            System.out.println("Perft position " + (i + 1) + " nodes per second: " + gameEngine.getNodesPerSecond());
+            totalNodesPerSecond += gameEngine.getNodesPerSecond();
+        }
+        System.out.println("Average nodes per second with " + numberOfThreads + " threads: "
+                + totalNodesPerSecond / perftArray.length);
+    }
+
+    // Search the position with the engine for the time given, return false if interrupted before the time was over
+    private static boolean searchForTime(GameEngine gameEngine, String position, int numberOfThreads,
+                                         long searchTimeMillisecond) {
+        gameEngine.startSearch(new ChessGame(position), null, STARTING_DEPTH_SEARCH, null, numberOfThreads);
+        try {
+            Thread.sleep(searchTimeMillisecond);
+        } catch (InterruptedException e) {
+            gameEngine.stopSearch();
+            return false;
+        }
+        gameEngine.stopSearch();
+        gameEngine.waitForSearchToFinish();
+        return true;
+    }
+
+    // This function will print the number of nodes the engine search in each depth up to the depth given, on the perft
+    // positions, to see how much of the tree the search prunes
+    public static void searchNodesTest(int maxDepth) {
+        long[] totalNodesPerDepth = new long[maxDepth + 1];
+        GameEngine gameEngine = new GameEngine();
+        for (int i = 0; i < perftArray.length; i++) {
+            long[] nodesPerDepth = gameEngine.searchNodesPerDepth(new ChessGame(perftArray[i]), maxDepth);
+            System.out.println("Perft position " + (i + 1) + " nodes per depth: "
+                    + Arrays.toString(Arrays.copyOfRange(nodesPerDepth, 1, nodesPerDepth.length)));
+            for (int depth = 1; depth <= maxDepth; depth++)
+                totalNodesPerDepth[depth] += nodesPerDepth[depth];
+        }
+        System.out.println("Total nodes per depth: "
+                + Arrays.toString(Arrays.copyOfRange(totalNodesPerDepth, 1, totalNodesPerDepth.length)));
+    }
+
+    // This function will check that the incremental evaluation of the pieces and the pawn hash are the same as
+    // calculating them from scratch, in every position up to the depth given of the perft positions
+    public static void incrementalEvaluationTest(int depth) {
+        GameEvaluater gameEvaluater = new GameEvaluater();
+        MoveBuffer[] moveStack = GameEngineUtilities.createMoveStack(depth + 1);
+        long totalMismatches = 0;
+        for (int i = 0; i < perftArray.length; i++) {
+            long mismatches = numberOfEvaluationMismatches(depth, new ChessGame(perftArray[i]), gameEvaluater,
+                    moveStack, 0);
+            System.out.println("Perft position " + (i + 1) + " evaluation mismatches: " + mismatches);
+            totalMismatches += mismatches;
+        }
+        System.out.println(totalMismatches == 0 ? "Incremental evaluation test passed"
+                : "Incremental evaluation test failed, total mismatches: " + totalMismatches);
+    }
+
+    // Given a depth and a game, return the number of positions up to depth moves where the incremental evaluation or
+    // pawn hash is not the same as calculating them from scratch
+    private static long numberOfEvaluationMismatches(int depth, ChessGame game, GameEvaluater gameEvaluater,
+                                                     MoveBuffer[] moveStack, int ply) {
+        long mismatches = gameEvaluater.evaluatePieceValue(game, 0)
+                != gameEvaluater.evaluatePieceValueFromScratch(game, 0)
+                || game.getPawnHash() != ZobristHashing.calculatePawnHash(game) ? 1 : 0;
+        if (depth == 0)
+            return mismatches;
+
+        MoveBuffer moveBuffer = moveStack[ply];
+        MoveGenerator.generateLegalMoves(game, moveBuffer);
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            game.makeMove(moveBuffer.getMove(i));
+            mismatches += numberOfEvaluationMismatches(depth - 1, game, gameEvaluater, moveStack, ply + 1);
+            game.unmakeMove();
+        }
+        return mismatches;
+    }
+
     // Given a depth and a game, print the perft result of the game
     public static void perft(int depth, ChessGame game) {
         System.out.println("depth " + depth);
 
+        // Each depth generate its moves into its own buffer
+        MoveBuffer[] moveStack = GameEngineUtilities.createMoveStack(depth);
+        MoveBuffer moveBuffer = moveStack[0];
+        MoveGenerator.generateLegalMoves(game, moveBuffer);
+
         long current, total = 0;
-        LinkedList<PieceMove> pieceMovesList = GameEngineUtilities.getAllPossibleMoves(game);
         // For each possible move in that position, play that move
-        for (PieceMove pieceMove : pieceMovesList) {
-            ChessGame newGame = new ChessGame(game);
-            newGame.executeMove(pieceMove.getCurrentPieceSquare(), pieceMove.getTargetSquare(),
-                    pieceMove.getTypeOfPieceToPromoteTo());
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            int move = moveBuffer.getMove(i);
+            PieceMove pieceMove = new PieceMove(move, game);
+            game.makeMove(move);
 
             if (depth == 1)
                 current = 1;
             else
-                current = numberOfPossiblePositions(depth - 1, newGame);
+                current = numberOfPossiblePositions(depth - 1, game, moveStack, 1);
+
+            game.unmakeMove();
 
             System.out.println(pieceMove + ": " + current);
             total = total + current;
@@ -54,20 +158,20 @@ public class Perft {
     }
 
     // Given a depth and a game, return the number of possible positions for depth moves
-    private static long numberOfPossiblePositions(int depth, ChessGame game) {
-        LinkedList<PieceMove> pieceMovesList = GameEngineUtilities.getAllPossibleMoves(game);
+    private static long numberOfPossiblePositions(int depth, ChessGame game, MoveBuffer[] moveStack, int ply) {
+        MoveBuffer moveBuffer = moveStack[ply];
+        MoveGenerator.generateLegalMoves(game, moveBuffer);
         if (depth == 1)
-            return pieceMovesList.size();
+            return moveBuffer.size();
 
         // For each possible move in that position, play that move
         long numberOfMoves = 0;
-        for (PieceMove pieceMove : pieceMovesList) {
-            ChessGame newGame = new ChessGame(game);
-            newGame.executeMove(pieceMove.getCurrentPieceSquare(), pieceMove.getTargetSquare(),
-                    pieceMove.getTypeOfPieceToPromoteTo());
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            game.makeMove(moveBuffer.getMove(i));
 
             // Go to the position after the move has been played and check how many moves it can do
-            numberOfMoves = numberOfMoves + numberOfPossiblePositions(depth - 1, newGame);
+            numberOfMoves = numberOfMoves + numberOfPossiblePositions(depth - 1, game, moveStack, ply + 1);
+            game.unmakeMove();
         }
         return numberOfMoves;
     }
@@ -1,5 +1,7 @@
 package gameengine;
 
+import gamelogic.ChessGame;
+import gamelogic.EncodedMove;
 import gamelogic.pieces.Pawn;
 import gamelogic.pieces.Piece;
 
@@ -35,6 +37,15 @@ public class PieceMove {
         this.pieceToMove = piece;
     }
 
+    // Builder, create the move from a move encoded as int, the piece to move is created from the type of the piece on
+    // the square in the game it's played on, so the board of pieces of the game is not needed
+    public PieceMove(int encodedMove, ChessGame game) {
+        this(EncodedMove.getCurrentSquare(encodedMove), EncodedMove.getTargetSquare(encodedMove),
+                EncodedMove.getTypeOfPieceToPromoteTo(encodedMove),
+                Piece.createPiece(game.getPieceType(EncodedMove.getCurrentSquare(encodedMove)),
+                        EncodedMove.getCurrentSquare(encodedMove), game.getPlayerToPlay()), 0);
+    }
+
     // Empty constructor
     public PieceMove() {
         this.currentPieceSquare = 0;
@@ -47,13 +58,13 @@ public class PieceMove {
     // Check if the target square is a promotion square
     public boolean isItPromotionMove() {
         return (targetSquare < FIRST_SQUARE_ON_SECOND_ROW || targetSquare > LAST_SQUARE_ON_7TH_ROW)
-                && pieceToMove instanceof Pawn;
+                && pieceToMove.getPieceType() == Piece.PAWN;
     }
 
     @Override
     public String toString() {
         // If it's a promotion move, add the type of piece to promote
-        if (isItPromotionMove() && pieceToMove instanceof Pawn)
+        if (isItPromotionMove() && pieceToMove.getPieceType() == Piece.PAWN)
             return positionToNotation(currentPieceSquare) + positionToNotation(targetSquare) + typeOfPieceToPromoteTo;
         return positionToNotation(currentPieceSquare) + positionToNotation(targetSquare);
     }
@@ -0,0 +1,95 @@
+package gameengine;
+
+/*
+ Class responsible for deciding how much time the engine search for a move.
+ There are 2 limits:
+ Soft limit - the time the search should take, after it passed a new depth is not started
+ Hard limit - the search must stop, even in the middle of a depth
+ Each depth usually takes a few times longer than the depth before it, so a new depth is also not started if it is
+ predicted to not finish before the hard limit, the time it would have spent is saved instead of thrown away.
+ */
+public class TimeManager {
+
+    private static final long NANO_SECONDS_IN_MILLISECOND = 1_000_000L;
+    // Without knowing how many moves are left, assume the remaining time should be enough for that many moves
+    private static final int MOVES_TO_GO = 30;
+    private static final int INCREMENT_USED_NUMERATOR = 3;
+    private static final int INCREMENT_USED_DENOMINATOR = 4;
+    private static final int HARD_LIMIT_SOFT_LIMIT_MULTIPLIER = 4;
+    // At most this part of the remaining time can be used for a single move
+    private static final int MAX_REMAINING_TIME_DIVIDER = 3;
+    // The time it takes to play the move after the search is over
+    private static final long MOVE_OVERHEAD_MILLISECOND = 30;
+    private static final long MIN_SEARCH_TIME_MILLISECOND = 10;
+    // The limits of the prediction of how many times longer the next depth takes than the last depth
+    private static final double MIN_BRANCHING_FACTOR = 1.5;
+    private static final double MAX_BRANCHING_FACTOR = 6;
+
+    private final long softLimitMillisecond;
+    private final long hardLimitMillisecond;
+
+    private long startTime;
+    private long lastDepthStartTime;
+    private long lastDepthTime;
+    private long previousDepthTime;
+
+    // Builder, with the soft and hard limits of the search in milliseconds
+    private TimeManager(long softLimitMillisecond, long hardLimitMillisecond) {
+        this.hardLimitMillisecond = Math.max(MIN_SEARCH_TIME_MILLISECOND, hardLimitMillisecond);
+        this.softLimitMillisecond = Math.max(MIN_SEARCH_TIME_MILLISECOND, Math.min(softLimitMillisecond,
+                this.hardLimitMillisecond));
+    }
+
+    // Return a time manager for a fixed time to think on each move, the search can use all of it
+    public static TimeManager forMoveTime(long moveTimeMillisecond) {
+        long searchTime = moveTimeMillisecond - MOVE_OVERHEAD_MILLISECOND;
+        return new TimeManager(searchTime, searchTime);
+    }
+
+    // Return a time manager for a game with a clock, given the remaining time of the player and the increment it gets
+    // after every move. The soft limit is a share of the remaining time and most of the increment, the hard limit
+    // gives more time to finish a depth, but never too much of the remaining time
+    public static TimeManager forClock(long remainingTimeMillisecond, long incrementMillisecond) {
+        long availableTime = Math.max(0, remainingTimeMillisecond - MOVE_OVERHEAD_MILLISECOND);
+        long softLimit = availableTime / MOVES_TO_GO
+                + incrementMillisecond * INCREMENT_USED_NUMERATOR / INCREMENT_USED_DENOMINATOR;
+        long hardLimit = Math.min(softLimit * HARD_LIMIT_SOFT_LIMIT_MULTIPLIER,
+                availableTime / MAX_REMAINING_TIME_DIVIDER + incrementMillisecond);
+        return new TimeManager(softLimit, Math.min(hardLimit, availableTime));
+    }
+
+    // Start the time of the search
+    public void start() {
+        startTime = System.nanoTime();
+        lastDepthStartTime = startTime;
+        lastDepthTime = 0;
+        previousDepthTime = 0;
+    }
+
+    // Update the time that the last depth took to complete
+    public void depthCompleted() {
+        long now = System.nanoTime();
+        previousDepthTime = lastDepthTime;
+        lastDepthTime = now - lastDepthStartTime;
+        lastDepthStartTime = now;
+    }
+
+    // Return if there is enough time to start and complete the next depth
+    // The time of the next depth is predicted by how many times longer the last depth took than the one before it
+    public boolean shouldStartNextDepth() {
+        long elapsedTime = System.nanoTime() - startTime;
+        if (elapsedTime >= softLimitMillisecond * NANO_SECONDS_IN_MILLISECOND)
+            return false;
+
+        double branchingFactor = previousDepthTime == 0 ? MIN_BRANCHING_FACTOR
+                : Math.max(MIN_BRANCHING_FACTOR, Math.min(MAX_BRANCHING_FACTOR,
+                (double) lastDepthTime / previousDepthTime));
+        long predictedNextDepthTime = (long) (lastDepthTime * branchingFactor);
+        return elapsedTime + predictedNextDepthTime < hardLimitMillisecond * NANO_SECONDS_IN_MILLISECOND;
+    }
+
+    // Return if the search used all the time it has
+    public boolean isHardLimitReached() {
+        return System.nanoTime() - startTime >= hardLimitMillisecond * NANO_SECONDS_IN_MILLISECOND;
+    }
+}
@@ -1,119 +1,180 @@
 package gameengine;
 
 import gamelogic.ChessGame;
-import gamelogic.pieces.Piece;
+import gamelogic.EncodedMove;
 
-import java.util.Hashtable;
-import java.util.Random;
+import java.util.Arrays;
 
 /*
     Class responsible for the transposition table. the transposition table store previously evaluated positions, on
-    previous searches and on the same search, with the depth that the position was evaluated on, using hashmaps.
+    previous searches and on the same search, with the depth that the position was evaluated on.
+    Positions are identified by their zobrist hash, which the chess game keeps up to date on every move.
     While searching, check if the position was already evaluated in the transposition table, and if the depth that it
     was saved is higher than current depth of the search.
+
+    The table has a fixed size, a power of 2 number of buckets, stored in a single array of longs.
+    Each bucket has 2 entries, the first keep the deepest search of the bucket (or from an older search), the second is
+    always replaced. Each entry is 2 longs: the hash xor the data, and the data (move, score, depth, flag and age).
+    Xor-ing the 2 longs back gives the hash only if both were written by the same store, that way the table can be
+    shared between threads without a lock - an entry that was half overwritten by another thread is simply a miss.
  */
 public class TranspositionTableHandler {
-    // Represent an entry in the hashmap. for the hash of the position, store the best move of that entry,
-    // the score of the move, the depth of the search and
-    private static class TranspositionEntry {
-        PieceMove move;
-        int score;
-        int depth;
-        TranspositionFlag flag;
-
-        // Builder
-        TranspositionEntry(PieceMove move, int score, int depth, TranspositionFlag flag) {
-            this.move = move;
-            this.score = score;
-            this.depth = depth;
-            this.flag = flag;
-        }
-    }
 
-    // Enum for the different type of scores for entries EXACT - An exact score,
+    public static final int DEFAULT_TABLE_SIZE_MB = 64;
+    // Returned when there is no valid score for a position, no real score can be this low
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    // The different type of scores for entries EXACT - An exact score,
     // LOWERBOUND - lower bound score (minimum score), UPPERBOUND - An upper bound score (maximum score)
-    private enum TranspositionFlag {
-        EXACT,
-        LOWERBOUND,
-        UPPERBOUND
+    private static final int EXACT = 0;
+    private static final int LOWERBOUND = 1;
+    private static final int UPPERBOUND = 2;
+
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int ENTRIES_PER_BUCKET = 2;
+    private static final int LONGS_PER_BUCKET = LONGS_PER_ENTRY * ENTRIES_PER_BUCKET;
+    private static final int BYTES_PER_LONG = Long.BYTES;
+    private static final int BYTES_IN_MEGABYTE = 1024 * 1024;
+    private static final long EMPTY_ENTRY = 0;
+
+    // Layout of the data of an entry, the move is stored as the first 16 bits of an encoded move
+    private static final int MOVE_MASK = 0xFFFF;
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 48;
+    private static final int DEPTH_MASK = 0xFF;
+    private static final int FLAG_SHIFT = 56;
+    private static final int FLAG_MASK = 0x3;
+    private static final int AGE_SHIFT = 58;
+    private static final int AGE_MASK = 0x3F;
+    private static final long SCORE_MASK = 0xFFFFFFFFL;
+
+    private long[] transpositionTable;
+    private int bucketMask;
+    private int age;
+
+    // Builder, create a table that take at most sizeInMegabytes of memory
+    public TranspositionTableHandler(int sizeInMegabytes) {
+        resize(sizeInMegabytes);
     }
 
-    // Hash map that represent the transposition table
-    private final Hashtable<Long, TranspositionEntry> transpositionTable = new Hashtable<>();
-
-    // Player turn key and pieces key for hash
-    private final long PLAYER_KEY_WHITE;
-    private final long PLAYER_KEY_BLACK;
-    private final long[] pieceKeyArray = new long[6];
-
-    // Builder, generate a key for each color and for each piece
-    public TranspositionTableHandler() {
-        Random random = new Random();
-        PLAYER_KEY_WHITE = random.nextLong();
-        PLAYER_KEY_BLACK = random.nextLong();
-        for (int i = 0; i < pieceKeyArray.length; i++)
-            pieceKeyArray[i] = random.nextLong();
+    // Resize the table so it takes at most sizeInMegabytes of memory, the table is cleared
+    public void resize(int sizeInMegabytes) {
+        long numberOfBuckets = (long) sizeInMegabytes * BYTES_IN_MEGABYTE / (LONGS_PER_BUCKET * BYTES_PER_LONG);
+        // Round down to a power of 2, so the index of a bucket can be taken from the bits of the hash
+        int powerOfTwoBuckets = (int) Long.highestOneBit(Math.max(1, Math.min(numberOfBuckets,
+                Integer.MAX_VALUE / LONGS_PER_BUCKET)));
+
+        transpositionTable = new long[powerOfTwoBuckets * LONGS_PER_BUCKET];
+        bucketMask = powerOfTwoBuckets - 1;
+        age = 0;
     }
 
-    // Given a chess game, depth, alpha and beta, search if there is a valid evaluation of the position already
-    public PieceMove checkIfCalculatedAlready(ChessGame game, int depth, int alpha, int beta) {
-        long hash = calculateHash(game);
-        TranspositionEntry entry;
+    // Given a chess game, depth, alpha and beta, search if there is a valid evaluation of the position already,
+    // return its score if there is, otherwise NO_SCORE
+    public int checkIfCalculatedAlready(ChessGame game, int depth, int alpha, int beta) {
+        long entry = findEntry(game.getHash());
 
-        entry = transpositionTable.get(hash);
         // If an entry found, and the depth of the saved entry is higher than current, it's a valid position
-        if (entry != null && entry.depth >= depth) {
+        if (entry != EMPTY_ENTRY && getDepth(entry) >= depth) {
+            int flag = getFlag(entry), score = getScore(entry);
             // If the entry's score type is EXACT, it means the position has been fully evaluated
-            if (entry.flag == TranspositionFlag.EXACT) {
-                return entry.move;
+            if (flag == EXACT) {
+                return score;
                 // If lower bound, its minimum score, update the alpha value
-            } else if (entry.flag == TranspositionFlag.LOWERBOUND) {
-                alpha = Math.max(alpha, entry.score);
+            } else if (flag == LOWERBOUND) {
+                alpha = Math.max(alpha, score);
                 // If upper bound, its maximum score, update the beta value
-            } else if (entry.flag == TranspositionFlag.UPPERBOUND) {
-                beta = Math.min(beta, entry.score);
+            } else if (flag == UPPERBOUND) {
+                beta = Math.min(beta, score);
             }
 
-            // If the updated alpha is greater than or equal to beta, it's a cutoff, we can return the stored best move.
+            // If the updated alpha is greater than or equal to beta, it's a cutoff, we can return the stored score.
             if (alpha >= beta) {
-                return entry.move;
+                return score;
             }
         }
-        return null;
+        return NO_SCORE;
+    }
+
+    // Given a chess game, return the best move stored for the position (only the current square, target square and
+    // promotion of the move), or EncodedMove.NO_MOVE if the position is not in the table
+    public int getBestMove(ChessGame game) {
+        return (int) findEntry(game.getHash()) & MOVE_MASK;
     }
 
     // After a new position was calculated, add it to the transposition table
-    public void updateTranspositionTable(PieceMove bestMove, int depth, int bestScore, int alpha, int beta, ChessGame game) {
-        long hash = calculateHash(game);
+    public void updateTranspositionTable(int bestMove, int depth, int bestScore, int alpha, int beta, ChessGame game) {
+        long hash = game.getHash();
         // Determine the type of score based on the comparison of bestScore with alpha and beta.
-        TranspositionFlag flag = (bestScore <= alpha) ? TranspositionFlag.UPPERBOUND :
-                ((bestScore >= beta) ? TranspositionFlag.LOWERBOUND : TranspositionFlag.EXACT);
-        // Add the new entry with the position as hash, to the entry table
-        transpositionTable.put(hash, new TranspositionEntry(bestMove, bestScore, depth, flag));
+        int flag = (bestScore <= alpha) ? UPPERBOUND : ((bestScore >= beta) ? LOWERBOUND : EXACT);
+        long data = packData(bestMove, bestScore, depth, flag);
+
+        int bucketIndex = getBucketIndex(hash);
+        long depthPreferredData = transpositionTable[bucketIndex + 1];
+        long depthPreferredHash = transpositionTable[bucketIndex] ^ depthPreferredData;
+
+        // Replace the depth preferred entry if it's empty, the same position, from an older search or not as deep,
+        // otherwise store in the always replace entry
+        if (depthPreferredData == EMPTY_ENTRY || depthPreferredHash == hash || getAge(depthPreferredData) != age
+                || getDepth(depthPreferredData) <= depth)
+            storeEntry(bucketIndex, hash, data);
+        else
+            storeEntry(bucketIndex + LONGS_PER_ENTRY, hash, data);
     }
 
-    // Given a game of chess, calculate it's hashing
-    public long calculateHash(ChessGame game) {
-        long hash = 0;
+    // Start a new search, entries from previous searches can be replaced even if they are deeper
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
 
-        // For each piece, hash it with the key, and it's position
-        for (Piece piece : game.getPieceList()) {
-            hash ^= piece.getSquareAsBitBoard();
-            hash ^= pieceKeyArray[piece.getPieceType()];
+    // Clear the table
+    public void clearTable() {
+        Arrays.fill(transpositionTable, EMPTY_ENTRY);
+        age = 0;
+    }
+
+    // Given a hash, return the data of its entry, or EMPTY_ENTRY if it's not in the table
+    private long findEntry(long hash) {
+        int bucketIndex = getBucketIndex(hash);
+        for (int i = bucketIndex; i < bucketIndex + LONGS_PER_BUCKET; i += LONGS_PER_ENTRY) {
+            long data = transpositionTable[i + 1];
+            if (data != EMPTY_ENTRY && (transpositionTable[i] ^ data) == hash)
+                return data;
         }
+        return EMPTY_ENTRY;
+    }
 
-        // Hash the player turn
-        if (game.getPlayerToPlay())
-            hash ^= PLAYER_KEY_WHITE;
-        else
-            hash ^= PLAYER_KEY_BLACK;
+    // Store the entry, the hash is stored xor the data
+    private void storeEntry(int entryIndex, long hash, long data) {
+        transpositionTable[entryIndex] = hash ^ data;
+        transpositionTable[entryIndex + 1] = data;
+    }
 
-        return hash;
+    // Given a hash, return the index of the first long of its bucket
+    private int getBucketIndex(long hash) {
+        return ((int) hash & bucketMask) * LONGS_PER_BUCKET;
     }
 
-    // Clear the table
-    public void clearTable() {
-        transpositionTable.clear();
+    // Pack the move, score, depth, flag and age of an entry into a long
+    private long packData(int move, int score, int depth, int flag) {
+        return EncodedMove.toShortMove(move) | (score & SCORE_MASK) << SCORE_SHIFT
+                | (long) (depth & DEPTH_MASK) << DEPTH_SHIFT | (long) flag << FLAG_SHIFT | (long) age << AGE_SHIFT;
+    }
+
+    // Getters of the fields of the data of an entry
+    private int getScore(long data) {
+        return (int) (data >>> SCORE_SHIFT);
     }
-}
 
+    private int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    private int getFlag(long data) {
+        return (int) (data >>> FLAG_SHIFT) & FLAG_MASK;
+    }
+
+    private int getAge(long data) {
+        return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+    }
+}
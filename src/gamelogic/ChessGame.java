@@ -1,27 +1,58 @@
 package gamelogic;
 
-import gameengine.PieceMove;
-import gamelogic.pieces.King;
-import gamelogic.pieces.Pawn;
 import gamelogic.pieces.Piece;
+import gamelogic.pieces.PieceEvaluation;
+import gamelogic.pieces.PieceEvaluationConstants;
+import gamelogic.pieces.PieceMovement;
+import gamelogic.specialmoves.CastlingSpecialMove;
 import gamelogic.specialmoves.SpecialMovesHandler;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 
-// A class that represent a game of chess
+import static gamelogic.GameLogicUtilities.WHITE_PAWN_MOVE_OFFSET;
+
+/*
+ A class that represent a game of chess
+ The position is kept as bitboards - a bitboard for each piece type of each color, a bitboard for each color and a
+ bitboard of all the pieces, and the type of the piece on each square. They are updated on each move by changing only
+ the squares the move changed, and the move generation, the legal moves, the special moves and the evaluation work on
+ them by square, piece type and color. The board of pieces is only a view of the same position for the GUI, it's
+ created again from the piece types the first time it's needed after a move, so making a move creates no objects
+ */
 public class ChessGame {
     private boolean colorOfPlayersTurn;
-    private LinkedList<Piece> pieceList;
-    private Piece[] pieceBoard;
-    private long playerTurnPiecesBitBoard;
+    private final Piece[] pieceBoard = new Piece[GameLogicUtilities.BOARD_SIZE];
+    private boolean isPieceBoardUpdated;
+    private final byte[] pieceTypeBoard = new byte[GameLogicUtilities.BOARD_SIZE];
     private long allPiecesBitBoard;
-    Piece currentPlayerKing;
+    private final long[] colorBitBoards = new long[NUMBER_OF_COLORS];
+    private final long[] pieceTypeBitBoards = new long[NUMBER_OF_PIECE_TYPES * NUMBER_OF_COLORS];
+    private long hash;
+    // The hash of the pawns only, the pawn structure is evaluated once for each pawn hash
+    private long pawnHash;
+    // The value of the pieces by their type and square in the middle game and in the end game, white pieces add and
+    // black pieces subtract, and the game phase by the non-pawn material left
+    // They are updated on each move, so the evaluation doesn't need to go over all the pieces
+    private int middleGamePositionValue;
+    private int endGamePositionValue;
+    private int gamePhase;
 
     private SpecialMovesHandler specialMovesHandler;
     private final LegalMoveHandler legalMoveHandler = new LegalMoveHandler();
 
     private GameStatusHandler gameStatusHandler = new GameStatusHandler();
 
+    private UndoMoveData[] undoMoveStack = new UndoMoveData[INITIAL_UNDO_STACK_SIZE];
+    private int undoMoveStackSize;
+
+    private static final PieceMovement pieceMovement = new PieceMovement();
+    private static final PieceEvaluation pieceEvaluation = new PieceEvaluation();
+
+    private static final int INITIAL_UNDO_STACK_SIZE = 128;
+    private static final int NUMBER_OF_PIECE_TYPES = 6;
+    private static final int NUMBER_OF_COLORS = 2;
+
     public static final int MOVE_NOT_EXECUTED = -1;
     public static final char PROMOTE_TO_QUEEN = 'q';
     public static final char PROMOTE_TO_ROOK = 'r';
@@ -36,14 +67,14 @@ public class ChessGame {
 
     // Reset the game to default start up
     public void reset(String fen) {
-        pieceBoard = new Piece[GameLogicUtilities.BOARD_SIZE];
         FenTranslator translator;
         if (fen == null || fen.trim().isEmpty())
             translator = new FenTranslator();
         else
             translator = new FenTranslator(fen);
         getGameSetUp(translator);
-        gameStatusHandler.initialize(this);
+        undoMoveStackSize = 0;
+        gameStatusHandler.initialize(this, translator.getHalfMoveClock());
     }
 
     // Retrieve all game setups (castling right, piece position, en passant target square) from fen
@@ -56,42 +87,70 @@ public class ChessGame {
                 translator.canBlackLongCastle(),
                 translator.getEnPassantSquareToCapture());
 
-        pieceList = translator.getPieceList();
         // Insert pieces from the list into the board
-        for (Piece piece : pieceList)
+        Arrays.fill(pieceBoard, null);
+        for (Piece piece : translator.getPieceList())
             pieceBoard[piece.getSquare()] = piece;
+        isPieceBoardUpdated = true;
+        calculateBitBoards();
         updateAttributes();
+        hash = ZobristHashing.calculateHash(this);
+        pawnHash = ZobristHashing.calculatePawnHash(this);
+        calculatePositionValues();
     }
 
-    // TODO: temp create copy of a game chess until undo move
+    // Copy builder, create a deep copy of the game that can be played on without changing the original game
+    // The copy doesn't have the undo history of the original game
     public ChessGame(ChessGame game) {
-        pieceBoard = new Piece[GameLogicUtilities.BOARD_SIZE];
         colorOfPlayersTurn = game.getPlayerToPlay();
-        pieceList = game.getCopyOfPieceList();
         specialMovesHandler = new SpecialMovesHandler(game.specialMovesHandler);
-        for (Piece piece : pieceList)
-            pieceBoard[piece.getSquare()] = piece;
+        System.arraycopy(game.pieceTypeBoard, 0, pieceTypeBoard, 0, pieceTypeBoard.length);
+        System.arraycopy(game.colorBitBoards, 0, colorBitBoards, 0, colorBitBoards.length);
+        System.arraycopy(game.pieceTypeBitBoards, 0, pieceTypeBitBoards, 0, pieceTypeBitBoards.length);
+        allPiecesBitBoard = game.allPiecesBitBoard;
         updateAttributes();
+        hash = game.hash;
+        pawnHash = game.pawnHash;
+        middleGamePositionValue = game.middleGamePositionValue;
+        endGamePositionValue = game.endGamePositionValue;
+        gamePhase = game.gamePhase;
         this.gameStatusHandler = new GameStatusHandler(game.gameStatusHandler);
-        gameStatusHandler.initialize(this);
     }
 
     // Given a square, get all the legal moves that piece can do as bitboard
     public long getLegalMovesAsBitBoard(byte square) {
-        return getLegalMovesAsBitBoard(pieceBoard[square]);
+        return getLegalMovesAsBitBoard(square, getBitBoardOfSquaresThreatenByEnemy());
     }
 
-    // Given a piece, return the legal moves that the piece can do
-    public long getLegalMovesAsBitBoard(Piece piece) {
-        if (piece != null && colorOfPlayersTurn == piece.getColor()) {
-            long pieceMoves = piece.getMovesAsBitBoard(allPiecesBitBoard, playerTurnPiecesBitBoard);
-            long specialMoves = specialMovesHandler.getSpecialMoves(piece, getBitBoardOfSquaresThreatenByEnemy(),
-                    allPiecesBitBoard, pieceList, colorOfPlayersTurn, currentPlayerKing);
+    // Given a square and the squares threatened by the enemy, return the legal moves that the piece on the square can
+    // do, the squares threatened by the enemy are the same for all the pieces, so they are calculated once by the caller
+    long getLegalMovesAsBitBoard(byte square, long squaresThreatenByEnemy) {
+        return getLegalMovesAsBitBoard(square, squaresThreatenByEnemy, GameLogicUtilities.FULL_BOARD);
+    }
 
-            long allPieceMoves = pieceMoves | specialMoves;
-            return legalMoveHandler.removeIllegalMoves(allPieceMoves, piece, pieceList, colorOfPlayersTurn,
-                    allPiecesBitBoard, playerTurnPiecesBitBoard, gameStatusHandler.isPlayerChecked(this),
-                    specialMovesHandler.getEnPassantSquare(), currentPlayerKing);
+    // Given a square, the squares threatened by the enemy and target squares, return the legal moves of the piece on
+    // the square to the target squares only. The other moves are removed before checking which moves are legal, so
+    // when the moves are generated in parts (like captures and then quiet moves) the legality of each move is checked
+    // only once
+    long getLegalMovesAsBitBoard(byte square, long squaresThreatenByEnemy, long targetSquares) {
+        byte pieceType = pieceTypeBoard[square];
+        if ((getSameColorPieceBitBoard() & GameLogicUtilities.squareAsBitBoard(square)) != 0) {
+            // In double check only the king can move
+            if (legalMoveHandler.isDoubleCheck() && pieceType != Piece.KING)
+                return 0;
+
+            long pieceMoves = pieceMovement.getMovesAsBitBoard(pieceType, square, colorOfPlayersTurn,
+                    allPiecesBitBoard, getSameColorPieceBitBoard());
+            long specialMoves = specialMovesHandler.getSpecialMoves(pieceType, square, colorOfPlayersTurn,
+                    squaresThreatenByEnemy, allPiecesBitBoard, getPieceTypeBitBoard(Piece.ROOK, !colorOfPlayersTurn)
+                            | getPieceTypeBitBoard(Piece.QUEEN, !colorOfPlayersTurn), getPlayerTurnKingSquare());
+
+            long allPieceMoves = (pieceMoves | specialMoves) & targetSquares;
+            if (allPieceMoves == 0)
+                return 0;
+
+            return legalMoveHandler.removeIllegalMoves(allPieceMoves, pieceType, square, colorOfPlayersTurn,
+                    specialMovesHandler.getEnPassantSquare(), squaresThreatenByEnemy);
         }
         return 0;
     }
@@ -99,60 +158,326 @@ public class ChessGame {
     // Execute a move of a piece that its in the initial square, to the target square.
     // Check if it's a valid move, if not don't execute the move, return the status of the game after the move
     public int executeMove(byte currentSquare, byte targetSquare, char typeOfPieceToPromoteTo) {
-        Piece pieceToMove = pieceBoard[currentSquare];
-
-        if (!legalMoveHandler.isValidMove(currentSquare, targetSquare, pieceBoard, colorOfPlayersTurn,
-                getLegalMovesAsBitBoard(pieceToMove)))
+        if (!legalMoveHandler.isValidMove(currentSquare, targetSquare, getSameColorPieceBitBoard(),
+                getLegalMovesAsBitBoard(currentSquare)))
             return MOVE_NOT_EXECUTED;
 
-        if (specialMovesHandler.isSpecialMove(targetSquare, pieceToMove))
-            specialMovesHandler.executeSpecialMove(currentSquare, targetSquare, pieceList, pieceBoard,
-                    typeOfPieceToPromoteTo);
-        else
-            GameLogicUtilities.updatePiecePosition(targetSquare, currentSquare, pieceBoard, pieceList);
+        makeMove(currentSquare, targetSquare, typeOfPieceToPromoteTo);
+        return getGameStatus();
+    }
+
+    // Make a move of a piece from the current square to the target square, without checking if it's a legal move,
+    // save the data needed to undo it, so it can be taken back using unmakeMove
+    public void makeMove(byte currentSquare, byte targetSquare, char typeOfPieceToPromoteTo) {
+        byte pieceType = pieceTypeBoard[currentSquare];
+        boolean color = colorOfPlayersTurn;
+        boolean isSpecialMove = specialMovesHandler.isSpecialMove(targetSquare, pieceType);
+        boolean isEnPassantMove = isSpecialMove && specialMovesHandler.isEnPassantMove(targetSquare, pieceType);
+        UndoMoveData undoMoveData = pushUndoMoveData();
+
+        // Save the state of the game before the move
+        undoMoveData.movedPieceType = pieceType;
+        undoMoveData.movedPieceColor = color;
+        undoMoveData.currentSquare = currentSquare;
+        undoMoveData.targetSquare = targetSquare;
+        undoMoveData.castlingRights = specialMovesHandler.getCastlingRights();
+        undoMoveData.enPassantSquare = specialMovesHandler.getEnPassantSquare();
+        undoMoveData.gameStatus = gameStatusHandler.getKnownGameStatus();
+        undoMoveData.gameStage = gameStatusHandler.getGameStage();
+        undoMoveData.halfMoveClock = gameStatusHandler.getHalfMoveClock();
+        undoMoveData.repetitionHistoryStart = gameStatusHandler.getRepetitionHistoryStart();
+        undoMoveData.hash = hash;
+        undoMoveData.pawnHash = pawnHash;
+        undoMoveData.middleGamePositionValue = middleGamePositionValue;
+        undoMoveData.endGamePositionValue = endGamePositionValue;
+        undoMoveData.gamePhase = gamePhase;
+        undoMoveData.castlingMove = isSpecialMove && pieceType == Piece.KING;
+        // The other special moves of a pawn are promotions, the pawn is replaced by the type of piece to promote to
+        undoMoveData.promotedPieceType = isSpecialMove && pieceType == Piece.PAWN && !isEnPassantMove
+                ? (byte) EncodedMove.getPromotionPieceType(typeOfPieceToPromoteTo) : Piece.NO_PIECE;
+
+        // The captured piece is on the target square, unless it's en passant, then it's behind the target square
+        undoMoveData.capturedPieceSquare = targetSquare;
+        if (isEnPassantMove)
+            undoMoveData.capturedPieceSquare = (byte) (targetSquare + (color ?
+                    GameLogicUtilities.BLACK_PAWN_MOVE_OFFSET : WHITE_PAWN_MOVE_OFFSET));
+        undoMoveData.capturedPieceType = pieceTypeBoard[undoMoveData.capturedPieceSquare];
+
+        // Remove the value of the pieces that move or are captured from their squares, before the move
+        byte pieceOnTargetSquareType = getPieceOnTargetSquareType(undoMoveData);
+        updatePositionValues(pieceType, color, currentSquare, false);
+        if (undoMoveData.capturedPieceType != Piece.NO_PIECE)
+            updatePositionValues(undoMoveData.capturedPieceType, !color, undoMoveData.capturedPieceSquare, false);
+
+        // Move the piece on the board, as the promoted piece if it was promoted, and the rook when castling
+        pieceTypeBoard[undoMoveData.capturedPieceSquare] = Piece.NO_PIECE;
+        pieceTypeBoard[currentSquare] = Piece.NO_PIECE;
+        pieceTypeBoard[targetSquare] = pieceOnTargetSquareType;
+        updatePositionValues(pieceOnTargetSquareType, color, targetSquare, true);
+        if (undoMoveData.castlingMove) {
+            byte rookSquare = CastlingSpecialMove.getRookSquare(currentSquare, targetSquare);
+            byte rookTargetSquare = CastlingSpecialMove.getRookTargetSquare(currentSquare, targetSquare);
+            pieceTypeBoard[rookSquare] = Piece.NO_PIECE;
+            pieceTypeBoard[rookTargetSquare] = Piece.ROOK;
+            updatePositionValues(Piece.ROOK, color, rookSquare, false);
+            updatePositionValues(Piece.ROOK, color, rookTargetSquare, true);
+        }
+        toggleMoveOnBitBoards(undoMoveData);
+        isPieceBoardUpdated = false;
 
         // Change the turn of the player, and update all other game attributes
         colorOfPlayersTurn = !colorOfPlayersTurn;
-        specialMovesHandler.updateSpecialMoves(currentSquare, targetSquare, pieceToMove);
+        specialMovesHandler.updateSpecialMoves(currentSquare, targetSquare, pieceType, color);
+        updateHash(undoMoveData);
         updateAttributes();
 
+        // A pawn move or a capture can't be taken back, positions before it can't repeat
+        gameStatusHandler.afterTurnHandler(this,
+                pieceType == Piece.PAWN || undoMoveData.capturedPieceType != Piece.NO_PIECE);
+    }
 
-        return gameStatusHandler.afterTurnHandler(new PieceMove(currentSquare, targetSquare,
-                typeOfPieceToPromoteTo, getPiece(targetSquare), 0), this);
+    // Make an encoded move, without checking if it's a legal move
+    public void makeMove(int move) {
+        makeMove(EncodedMove.getCurrentSquare(move), EncodedMove.getTargetSquare(move),
+                EncodedMove.getTypeOfPieceToPromoteTo(move));
+    }
+
+    // Make a null move, the player to play passes the turn to the enemy without moving a piece
+    // Used by the search, if a position is good even after passing the turn, it's likely too good for the enemy to allow
+    // The null move can be taken back using unmakeMove, it must not be made while the king is checked
+    public void makeNullMove() {
+        UndoMoveData undoMoveData = pushUndoMoveData();
+
+        // Save the state of the game before the null move, no piece moved
+        undoMoveData.movedPieceType = Piece.NO_PIECE;
+        undoMoveData.castlingRights = specialMovesHandler.getCastlingRights();
+        undoMoveData.enPassantSquare = specialMovesHandler.getEnPassantSquare();
+        undoMoveData.gameStatus = gameStatusHandler.getKnownGameStatus();
+        undoMoveData.gameStage = gameStatusHandler.getGameStage();
+        undoMoveData.halfMoveClock = gameStatusHandler.getHalfMoveClock();
+        undoMoveData.repetitionHistoryStart = gameStatusHandler.getRepetitionHistoryStart();
+        undoMoveData.hash = hash;
+        undoMoveData.pawnHash = pawnHash;
+
+        // The en passant capture is lost once the turn passed
+        specialMovesHandler.setEnPassantSquare(ZobristHashing.NO_EN_PASSANT_SQUARE);
+        colorOfPlayersTurn = !colorOfPlayersTurn;
+        hash ^= ZobristHashing.getEnPassantKey(undoMoveData.enPassantSquare);
+        hash ^= ZobristHashing.getPlayerTurnKey(GameLogicUtilities.WHITE);
+        hash ^= ZobristHashing.getPlayerTurnKey(GameLogicUtilities.BLACK);
+        updateAttributes();
+
+        // Positions before the null move are not really the same game, they can't count as repetitions
+        gameStatusHandler.afterNullMoveHandler(this);
+    }
+
+    // Undo the last move that was made, restore the board and all the game attributes to before the move
+    public void unmakeMove() {
+        UndoMoveData undoMoveData = undoMoveStack[--undoMoveStackSize];
+        byte currentSquare = undoMoveData.currentSquare, targetSquare = undoMoveData.targetSquare;
+
+        // A null move didn't move any piece, only the turn and the game attributes are restored
+        if (undoMoveData.movedPieceType != Piece.NO_PIECE) {
+            // Toggling the same squares again takes the move back on the bitboards
+            toggleMoveOnBitBoards(undoMoveData);
+
+            // Move the piece back to its square, if it was promoted it's a pawn again, and put back the captured piece
+            pieceTypeBoard[targetSquare] = Piece.NO_PIECE;
+            pieceTypeBoard[currentSquare] = undoMoveData.movedPieceType;
+            if (undoMoveData.castlingMove) {
+                pieceTypeBoard[CastlingSpecialMove.getRookTargetSquare(currentSquare, targetSquare)] = Piece.NO_PIECE;
+                pieceTypeBoard[CastlingSpecialMove.getRookSquare(currentSquare, targetSquare)] = Piece.ROOK;
+            }
+            if (undoMoveData.capturedPieceType != Piece.NO_PIECE)
+                pieceTypeBoard[undoMoveData.capturedPieceSquare] = undoMoveData.capturedPieceType;
+            isPieceBoardUpdated = false;
+
+            middleGamePositionValue = undoMoveData.middleGamePositionValue;
+            endGamePositionValue = undoMoveData.endGamePositionValue;
+            gamePhase = undoMoveData.gamePhase;
+        }
+
+        // Restore the turn of the player and all other game attributes
+        colorOfPlayersTurn = !colorOfPlayersTurn;
+        specialMovesHandler.setCastlingRights(undoMoveData.castlingRights);
+        specialMovesHandler.setEnPassantSquare(undoMoveData.enPassantSquare);
+        gameStatusHandler.undoTurnHandler(undoMoveData.gameStatus, undoMoveData.gameStage, undoMoveData.halfMoveClock,
+                undoMoveData.repetitionHistoryStart);
+        hash = undoMoveData.hash;
+        pawnHash = undoMoveData.pawnHash;
+        updateAttributes();
+    }
+
+    // Return the type of the piece on the target square after the move, the promoted piece if the pawn was promoted
+    private static byte getPieceOnTargetSquareType(UndoMoveData undoMoveData) {
+        return undoMoveData.promotedPieceType != Piece.NO_PIECE
+                ? undoMoveData.promotedPieceType : undoMoveData.movedPieceType;
+    }
+
+    // Update the hash and the pawn hash of the game incrementally according to the move that was just made,
+    // xor out the keys that are no longer true for the position, and xor in the new keys
+    private void updateHash(UndoMoveData undoMoveData) {
+        byte movedPieceType = undoMoveData.movedPieceType, capturedPieceType = undoMoveData.capturedPieceType;
+        byte pieceOnTargetSquareType = getPieceOnTargetSquareType(undoMoveData);
+        boolean color = undoMoveData.movedPieceColor;
+        byte currentSquare = undoMoveData.currentSquare, targetSquare = undoMoveData.targetSquare;
+
+        hash ^= ZobristHashing.getPieceKey(movedPieceType, color, currentSquare);
+        hash ^= ZobristHashing.getPieceKey(pieceOnTargetSquareType, color, targetSquare);
+
+        if (capturedPieceType != Piece.NO_PIECE)
+            hash ^= ZobristHashing.getPieceKey(capturedPieceType, !color, undoMoveData.capturedPieceSquare);
+
+        // Only pawns change the pawn hash, a pawn can move, promote or be captured
+        if (movedPieceType == Piece.PAWN)
+            pawnHash ^= ZobristHashing.getPieceKey(Piece.PAWN, color, currentSquare);
+        if (pieceOnTargetSquareType == Piece.PAWN)
+            pawnHash ^= ZobristHashing.getPieceKey(Piece.PAWN, color, targetSquare);
+        if (capturedPieceType == Piece.PAWN)
+            pawnHash ^= ZobristHashing.getPieceKey(Piece.PAWN, !color, undoMoveData.capturedPieceSquare);
+
+        // When castling the rook moves as well
+        if (undoMoveData.castlingMove) {
+            hash ^= ZobristHashing.getPieceKey(Piece.ROOK, color,
+                    CastlingSpecialMove.getRookSquare(currentSquare, targetSquare));
+            hash ^= ZobristHashing.getPieceKey(Piece.ROOK, color,
+                    CastlingSpecialMove.getRookTargetSquare(currentSquare, targetSquare));
+        }
+
+        hash ^= ZobristHashing.getCastlingRightsKey(undoMoveData.castlingRights);
+        hash ^= ZobristHashing.getCastlingRightsKey(specialMovesHandler.getCastlingRights());
+        hash ^= ZobristHashing.getEnPassantKey(undoMoveData.enPassantSquare);
+        hash ^= ZobristHashing.getEnPassantKey(specialMovesHandler.getEnPassantSquare());
+        hash ^= ZobristHashing.getPlayerTurnKey(GameLogicUtilities.WHITE);
+        hash ^= ZobristHashing.getPlayerTurnKey(GameLogicUtilities.BLACK);
+    }
+
+    // Toggle on the bitboards the squares that the move changed: the square the piece left and the square it moved
+    // to (as the promoted piece if it was promoted), the square of the captured piece and the squares of the rook when
+    // castling. Toggling them again takes the move back, so the same function is used to make and to unmake the move
+    private void toggleMoveOnBitBoards(UndoMoveData undoMoveData) {
+        boolean color = undoMoveData.movedPieceColor;
+        byte currentSquare = undoMoveData.currentSquare, targetSquare = undoMoveData.targetSquare;
+
+        togglePiece(undoMoveData.movedPieceType, color, currentSquare);
+        togglePiece(getPieceOnTargetSquareType(undoMoveData), color, targetSquare);
+
+        if (undoMoveData.capturedPieceType != Piece.NO_PIECE)
+            togglePiece(undoMoveData.capturedPieceType, !color, undoMoveData.capturedPieceSquare);
+
+        if (undoMoveData.castlingMove) {
+            togglePiece(Piece.ROOK, color, CastlingSpecialMove.getRookSquare(currentSquare, targetSquare));
+            togglePiece(Piece.ROOK, color, CastlingSpecialMove.getRookTargetSquare(currentSquare, targetSquare));
+        }
+    }
+
+    // Given a piece type, a color and a square, add the piece to the bitboards if it's not there, otherwise remove it
+    private void togglePiece(int pieceType, boolean color, byte square) {
+        long squareBitBoard = GameLogicUtilities.squareAsBitBoard(square);
+        pieceTypeBitBoards[getPieceTypeIndex(pieceType, color)] ^= squareBitBoard;
+        colorBitBoards[getColorIndex(color)] ^= squareBitBoard;
+        allPiecesBitBoard ^= squareBitBoard;
+    }
+
+    // Calculate all the bitboards and the piece types from the board of pieces, only when the game is set up
+    private void calculateBitBoards() {
+        allPiecesBitBoard = 0;
+        Arrays.fill(colorBitBoards, 0);
+        Arrays.fill(pieceTypeBitBoards, 0);
+        Arrays.fill(pieceTypeBoard, Piece.NO_PIECE);
+        for (Piece piece : pieceBoard)
+            if (piece != null) {
+                togglePiece(piece.getPieceType(), piece.getColor(), piece.getSquare());
+                pieceTypeBoard[piece.getSquare()] = piece.getPieceType();
+            }
+    }
+
+    // Calculate the position values and the game phase of all the pieces
+    private void calculatePositionValues() {
+        middleGamePositionValue = 0;
+        endGamePositionValue = 0;
+        gamePhase = 0;
+        long pieces = allPiecesBitBoard;
+        while (pieces != 0) {
+            byte square = (byte) Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            updatePositionValues(pieceTypeBoard[square], getPieceColor(square), square, true);
+        }
+    }
+
+    // Given a piece type, its color and square, add the position values of the piece on the square and its game phase,
+    // or remove them
+    private void updatePositionValues(byte pieceType, boolean color, byte square, boolean isAdded) {
+        int middleGameValue = pieceEvaluation.evaluatePosition(pieceType, square, color, GameStatusHandler.MID_GAME);
+        int endGameValue = pieceEvaluation.evaluatePosition(pieceType, square, color, GameStatusHandler.END_GAME);
+        int piecePhase = PieceEvaluationConstants.GAME_PHASE_BY_TYPE[pieceType];
+
+        // White pieces add to the position values and black pieces subtract, removing a piece does the opposite
+        if (color == isAdded) {
+            middleGamePositionValue += middleGameValue;
+            endGamePositionValue += endGameValue;
+        } else {
+            middleGamePositionValue -= middleGameValue;
+            endGamePositionValue -= endGameValue;
+        }
+        gamePhase += isAdded ? piecePhase : -piecePhase;
+    }
+
+    // Create the board of pieces again from the piece types, if a move was made since it was last created
+    // A piece that is still of the same type and color on its square is kept
+    private void updatePieceBoard() {
+        if (isPieceBoardUpdated)
+            return;
+
+        for (byte square = 0; square < GameLogicUtilities.BOARD_SIZE; square++) {
+            byte pieceType = pieceTypeBoard[square];
+            Piece piece = pieceBoard[square];
+            if (pieceType == Piece.NO_PIECE)
+                pieceBoard[square] = null;
+            else if (piece == null || piece.getPieceType() != pieceType || piece.getColor() != getPieceColor(square))
+                pieceBoard[square] = Piece.createPiece(pieceType, square, getPieceColor(square));
+        }
+        isPieceBoardUpdated = true;
+    }
+
+    // Return the next free undo move data on the undo stack, grow the stack if it's full
+    private UndoMoveData pushUndoMoveData() {
+        if (undoMoveStackSize == undoMoveStack.length)
+            undoMoveStack = Arrays.copyOf(undoMoveStack, undoMoveStack.length * 2);
+
+        if (undoMoveStack[undoMoveStackSize] == null)
+            undoMoveStack[undoMoveStackSize] = new UndoMoveData();
+
+        return undoMoveStack[undoMoveStackSize++];
     }
 
     // Return as bitboard all the square that are currently threatened by enemy player
+    // Squares of enemy pieces that are protected, and squares behind the king on the line of an enemy piece are also
+    // threatened, since the king can't move to them
     public long getBitBoardOfSquaresThreatenByEnemy() {
-        long movementBitBoard = 0, enemyBitBoard = getEnemyBitBoard();
-        for (Piece piece : pieceList)
-            if (piece.getColor() == !colorOfPlayersTurn)
-                if (piece instanceof Pawn)
-                    movementBitBoard |= ((Pawn) piece).getPawnAttackSquare();
-                else
-                    movementBitBoard |= piece.getMovesAsBitBoard(allPiecesBitBoard, enemyBitBoard);
-
-        return movementBitBoard;
-    }
-
-    // Given a square, return if it's a castling move
-    public boolean isCastlingMove(byte targetSquare, Piece pieceToMove) {
-        // Is special move check if it's a special move of a king or a pawn, in case of a king it can onl be castling
-        if (pieceToMove instanceof King)
-            return specialMovesHandler.isSpecialMove(targetSquare, pieceToMove);
-        else
-            return false;
+        return legalMoveHandler.getSquaresThreatenedForKing(this);
     }
 
     // Getter methods
 
     // Return if the game is over
     public boolean isGameOver() {
-        return gameStatusHandler.isGameOver();
+        return gameStatusHandler.isGameOver(this);
     }
 
-    // Return status of the game
+    // Return status of the game, it's calculated the first time it's needed after a move
     public int getGameStatus() {
-        return gameStatusHandler.getGameStatus();
+        return gameStatusHandler.getGameStatus(this);
+    }
+
+    // Return if the current position has occurred twice before, and it's a draw
+    public boolean isDrawByRepetition() {
+        return gameStatusHandler.isDrawByRepetition();
+    }
+
+    // Return if 50 moves of each player were played without a pawn move or a capture, and it's a draw
+    public boolean isDrawByFiftyMoveRule() {
+        return gameStatusHandler.isDrawByFiftyMoveRule();
     }
 
     // Return stage of the game
@@ -160,22 +485,42 @@ public class ChessGame {
         return gameStatusHandler.getGameStage();
     }
 
-    // Given a square, return the piece on that square
+    // Given a square, return the piece on that square, the board of pieces is created again if it's not updated
     public Piece getPiece(int position) {
+        updatePieceBoard();
         return pieceBoard[position];
     }
 
+    // Given a square, return the type of the piece on that square, Piece.NO_PIECE if it's empty
+    public byte getPieceType(int square) {
+        return pieceTypeBoard[square];
+    }
+
+    // Given a square with a piece, return the color of the piece on that square
+    public boolean getPieceColor(int square) {
+        return (colorBitBoards[getColorIndex(GameLogicUtilities.WHITE)] & GameLogicUtilities.squareAsBitBoard(square))
+                != 0;
+    }
+
     // Return a copy of the list of all the pieces
     public LinkedList<Piece> getCopyOfPieceList() {
         LinkedList<Piece> newPieceList = new LinkedList<>();
-        for (Piece piece : pieceList)
+        for (Piece piece : getPieceList())
             newPieceList.add(piece.clone());
 
         return newPieceList;
     }
 
-    // Return the piece list
+    // Return a list of all the pieces on the board, from the first square to the last
+    // The list is created from the board, it's not updated by the moves made after it
     public LinkedList<Piece> getPieceList() {
+        updatePieceBoard();
+        LinkedList<Piece> pieceList = new LinkedList<>();
+        long pieces = allPiecesBitBoard;
+        while (pieces != 0) {
+            pieceList.add(pieceBoard[Long.numberOfTrailingZeros(pieces)]);
+            pieces &= pieces - 1;
+        }
         return pieceList;
     }
 
@@ -186,12 +531,49 @@ public class ChessGame {
 
     // Return same color piece bitboard
     public long getSameColorPieceBitBoard() {
-        return playerTurnPiecesBitBoard;
+        return colorBitBoards[getColorIndex(colorOfPlayersTurn)];
     }
 
     // Return the pieces of the enemy as bitboard
     public long getEnemyBitBoard() {
-        return allPiecesBitBoard & ~playerTurnPiecesBitBoard;
+        return colorBitBoards[getColorIndex(!colorOfPlayersTurn)];
+    }
+
+    // Given a color, return the pieces of that color as bitboard
+    public long getColorBitBoard(boolean color) {
+        return colorBitBoards[getColorIndex(color)];
+    }
+
+    // Given a game stage, middle game or end game, return the value of all the pieces by their type and square in it,
+    // without their activity. White pieces add to the value and black pieces subtract from it
+    public int getPositionValue(int gameStage) {
+        return gameStage == GameStatusHandler.END_GAME ? endGamePositionValue : middleGamePositionValue;
+    }
+
+    // Return the game phase, the non-pawn material left from PieceEvaluationConstants.MAX_GAME_PHASE at the start of
+    // the game to 0. After promotions there can be more material than at the start, it's still the max phase
+    public int getGamePhase() {
+        return Math.min(gamePhase, PieceEvaluationConstants.MAX_GAME_PHASE);
+    }
+
+    // Return the zobrist hash of the pawns of the current position
+    public long getPawnHash() {
+        return pawnHash;
+    }
+
+    // Return the zobrist hash of the current position
+    public long getHash() {
+        return hash;
+    }
+
+    // Return the castling rights as a mask
+    public byte getCastlingRights() {
+        return specialMovesHandler.getCastlingRights();
+    }
+
+    // Return the en passant square, -1 if there is none
+    public byte getEnPassantSquare() {
+        return specialMovesHandler.getEnPassantSquare();
     }
 
     // Return true if its white turn to play or false if it's black
@@ -199,42 +581,36 @@ public class ChessGame {
         return colorOfPlayersTurn;
     }
 
+    // Return if the king of the player turn is checked
+    public boolean isPlayerChecked() {
+        return legalMoveHandler.isChecked();
+    }
+
+    // Given a piece type and a color, return the pieces of that type and color as bitboard
+    public long getPieceTypeBitBoard(int pieceType, boolean color) {
+        return pieceTypeBitBoards[getPieceTypeIndex(pieceType, color)];
+    }
+
     // Return the current player's king square
     public byte getPlayerTurnKingSquare() {
-        return currentPlayerKing.getSquare();
+        return (byte) Long.numberOfTrailingZeros(getPieceTypeBitBoard(Piece.KING, colorOfPlayersTurn));
     }
 
     // Update parameters functions
 
     // Update parameters
     private void updateAttributes() {
-        updateCurrentKing();
-        updateBitBoards();
-        legalMoveHandler.updateTreatingLines(pieceList, allPiecesBitBoard, getEnemyBitBoard(),
-                colorOfPlayersTurn, currentPlayerKing);
-    }
-
-    // Update the current king to match the king of the player turn
-    private void updateCurrentKing() {
-        for (Piece piece : pieceList)
-            if (piece instanceof King && piece.getColor() == colorOfPlayersTurn) {
-                currentPlayerKing = piece;
-                return;
-            }
+        legalMoveHandler.updateCheckersAndPins(this);
     }
 
-    // update the value of allPiecesBitBoard and playerTurnPiecesBitBoard according to the piece list
-    private void updateBitBoards() {
-        allPiecesBitBoard = 0;
-        playerTurnPiecesBitBoard = 0;
-        // For each piece, add its bitboard position to it's matching bitboard
-        for (Piece piece : pieceList) {
-            long pieceBitBoardPosition = piece.getSquareAsBitBoard();
-            if (piece.getColor() == colorOfPlayersTurn)
-                playerTurnPiecesBitBoard |= pieceBitBoardPosition;
-
-            allPiecesBitBoard |= pieceBitBoardPosition;
-        }
+    // Given a color, return the index of its bitboard
+    private static int getColorIndex(boolean color) {
+        return color ? 0 : 1;
+    }
+
+    // Given a piece type and a color, return the index of the bitboard of that piece type and color
+    private static int getPieceTypeIndex(int pieceType, boolean color) {
+        return pieceType + (color ? 0 : NUMBER_OF_PIECE_TYPES);
     }
 
 
@@ -0,0 +1,106 @@
+package gamelogic;
+
+import gamelogic.pieces.Piece;
+
+/*
+ Util class for moves encoded as an int, that way moves can be generated and stored without creating objects.
+ The bits of the int:
+ 0-5   - current square of the piece
+ 6-11  - target square of the piece
+ 12-14 - type of piece to promote to (Piece.QUEEN, Piece.ROOK...), 0 if it's not a promotion
+ 16-18 - type of the piece that moves
+ 19-21 - type of the piece that is captured, only valid if the capture flag is on
+ 22-24 - flags: capture, en passant, castling
+ The first 16 bits are enough to identify a move in a position, and are what is stored in the transposition table
+ */
+public class EncodedMove {
+
+    public static final int NO_MOVE = 0;
+
+    public static final int CAPTURE_FLAG = 1 << 22;
+    public static final int EN_PASSANT_FLAG = 1 << 23;
+    public static final int CASTLING_FLAG = 1 << 24;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PIECE_TYPE_MASK = 0x7;
+    private static final int TARGET_SQUARE_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PIECE_TO_MOVE_SHIFT = 16;
+    private static final int CAPTURED_PIECE_SHIFT = 19;
+    private static final int SHORT_MOVE_MASK = 0xFFFF;
+    private static final int NO_PROMOTION = 0;
+
+    // Given all the parts of a move, return it encoded as an int
+    public static int encode(int currentSquare, int targetSquare, int typeOfPieceToPromoteTo, int pieceToMoveType,
+                             int capturedPieceType, int flags) {
+        return currentSquare | targetSquare << TARGET_SQUARE_SHIFT | typeOfPieceToPromoteTo << PROMOTION_SHIFT
+                | pieceToMoveType << PIECE_TO_MOVE_SHIFT | capturedPieceType << CAPTURED_PIECE_SHIFT | flags;
+    }
+
+    // Getter methods of the parts of a move
+    public static byte getCurrentSquare(int move) {
+        return (byte) (move & SQUARE_MASK);
+    }
+
+    public static byte getTargetSquare(int move) {
+        return (byte) (move >>> TARGET_SQUARE_SHIFT & SQUARE_MASK);
+    }
+
+    public static int getPromotionPieceType(int move) {
+        return move >>> PROMOTION_SHIFT & PIECE_TYPE_MASK;
+    }
+
+    public static int getPieceToMoveType(int move) {
+        return move >>> PIECE_TO_MOVE_SHIFT & PIECE_TYPE_MASK;
+    }
+
+    public static int getCapturedPieceType(int move) {
+        return move >>> CAPTURED_PIECE_SHIFT & PIECE_TYPE_MASK;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_FLAG) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return getPromotionPieceType(move) != NO_PROMOTION;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT_FLAG) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING_FLAG) != 0;
+    }
+
+    // Return the first 16 bits of the move, current square, target square and promotion, enough to identify it
+    public static int toShortMove(int move) {
+        return move & SHORT_MOVE_MASK;
+    }
+
+    // Return if 2 moves are the same move, only compare the part that identify a move
+    public static boolean isSameMove(int move, int otherMove) {
+        return toShortMove(move) == toShortMove(otherMove);
+    }
+
+    // Return the type of piece to promote to as the char ChessGame use, default to queen if it's not a promotion
+    public static char getTypeOfPieceToPromoteTo(int move) {
+        return switch (getPromotionPieceType(move)) {
+            case Piece.ROOK -> ChessGame.PROMOTE_TO_ROOK;
+            case Piece.BISHOP -> ChessGame.PROMOTE_TO_BISHOP;
+            case Piece.KNIGHT -> ChessGame.PROMOTE_TO_KNIGHT;
+            default -> ChessGame.PROMOTE_TO_QUEEN;
+        };
+    }
+
+    // Given the char ChessGame use for the type of piece to promote to, return the piece type
+    public static int getPromotionPieceType(char typeOfPieceToPromoteTo) {
+        return switch (typeOfPieceToPromoteTo) {
+            case ChessGame.PROMOTE_TO_ROOK -> Piece.ROOK;
+            case ChessGame.PROMOTE_TO_BISHOP -> Piece.BISHOP;
+            case ChessGame.PROMOTE_TO_KNIGHT -> Piece.KNIGHT;
+            default -> Piece.QUEEN;
+        };
+    }
+}
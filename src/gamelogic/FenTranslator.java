@@ -12,7 +12,7 @@ The purpose of FEN is to provide all the necessary information to restart a game
  2. player turn - save as boolean, true meaning white turn
  3. castling rights - save as a boolean for each castling
  4. en peasant target square
- 5. half move clock - not extracting yet
+ 5. half move clock - number of half moves since the last pawn move or capture, 0 if missing
  6. full move clock - not extracting yet
  */
 public class FenTranslator {
@@ -42,7 +42,8 @@ public class FenTranslator {
     private boolean whiteLongCastle;
     private boolean blackShortCastle;
     private boolean blackLongCastle;
-    private byte enPassantTargetSquare;
+    private byte enPassantTargetSquare = ZobristHashing.NO_EN_PASSANT_SQUARE;
+    private int halfMoveClock;
     private final LinkedList<Piece> pieceList = new LinkedList<>();
 
     // Builder that use the classical chess start up as its fen
@@ -64,17 +65,29 @@ public class FenTranslator {
         whiteTurnToPlay = fenStringValue.charAt(indexPosition) == WHITE_TURN;
         indexPosition = indexPosition + 2;
         indexPosition = extractCastling(indexPosition);
-        extractEnPassant(indexPosition);
+        indexPosition = extractEnPassant(indexPosition);
+        extractHalfMoveClock(indexPosition);
     }
 
     // Extract the value of target en passant square
-    private void extractEnPassant(int indexPosition) {
+    private int extractEnPassant(int indexPosition) {
         if (fenStringValue.charAt(indexPosition) != EMPTY) {
-            // Convert chess square (i.e c3,a4...), to number square
-            int column = fenStringValue.charAt(indexPosition++) - 'h';
-            int row = Character.getNumericValue(fenStringValue.charAt(indexPosition));
+            // Convert chess square (i.e c3,a4...), to number square, column h is 0 and row 1 is 0
+            int column = 'h' - fenStringValue.charAt(indexPosition++);
+            int row = Character.getNumericValue(fenStringValue.charAt(indexPosition)) - 1;
             enPassantTargetSquare = (byte) (column + (row * GameLogicUtilities.BOARD_EDGE_SIZE));
         }
+        // Skip the last char of the en passant square and the space after it
+        return indexPosition + 2;
+    }
+
+    // Extract the number of half moves since the last pawn move or capture, some fens end before it, then it's 0
+    private void extractHalfMoveClock(int indexPosition) {
+        int halfMoveClock = 0;
+        while (indexPosition < fenStringValue.length() && Character.isDigit(fenStringValue.charAt(indexPosition)))
+            halfMoveClock = halfMoveClock * 10 + Character.getNumericValue(fenStringValue.charAt(indexPosition++));
+
+        this.halfMoveClock = halfMoveClock;
     }
 
     // Extract all the casting right for each player
@@ -92,7 +105,10 @@ public class FenTranslator {
             whiteLongCastle = subFenString.toString().contains(LONG_CASTLE_WHITE);
             blackShortCastle = subFenString.toString().contains(SHORT_CASTLE_BLACK);
             blackLongCastle = subFenString.toString().contains(LONG_CASTLE_BLACK);
-        }
+        } else
+            // Skip the '-' of no castling rights
+            indexPosition++;
+
         return ++indexPosition;
     }
 
@@ -162,6 +178,10 @@ public class FenTranslator {
         return enPassantTargetSquare;
     }
 
+    public int getHalfMoveClock() {
+        return halfMoveClock;
+    }
+
     public LinkedList<Piece> getPieceList() {
         return pieceList;
     }
@@ -1,9 +1,5 @@
 package gamelogic;
 
-import gamelogic.pieces.Piece;
-
-import java.util.LinkedList;
-
 // Util class for all the bit boards operation
 public class GameLogicUtilities {
     public static final boolean WHITE = true;
@@ -15,6 +11,7 @@ public class GameLogicUtilities {
     public static final byte BLACK_PAWN_MOVE_OFFSET = -8;
 
     public static final long EMPTY_BOARD = 0;
+    public static final long FULL_BOARD = -1L;
 
     // Given a square, return its row number
     public static int getRowOfSquare(byte square) {
@@ -32,22 +29,6 @@ public class GameLogicUtilities {
         return 1L << square;
     }
 
-    // Update piece Position from its current square to the target square
-    public static void updatePiecePosition(byte targetSquare, byte currentSquare,
-                                           Piece[] board, LinkedList<Piece> pieceList) {
-
-        Piece pieceToMove = board[currentSquare];
-        Piece pieceToRemove = board[targetSquare];
-
-        // Update the position of the piece, on the board and of the piece
-        pieceToMove.setSquare(targetSquare);
-        board[targetSquare] = pieceToMove;
-        board[currentSquare] = null;
-
-        // Remove the piece on the target square and remove from the board the piece from the previous position
-        pieceList.remove(pieceToRemove);
-    }
-
     // Shift a number left, if a number is negative, shift it right
     public static long shiftNumberLeft(long num, int offset) {
         if (offset > 0)
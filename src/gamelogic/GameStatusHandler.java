@@ -1,26 +1,34 @@
 package gamelogic;
 
-import gameengine.PieceMove;
-import gamelogic.pieces.Piece;
-
-import java.util.LinkedList;
+import java.util.Arrays;
 
 // Class responsible for handling everything about the status of the game, what stage is it and current state
+// The hash of every position since the start of the game is kept in a history stack, and the number of half moves since
+// the last irreversible move (pawn move or capture), that way draw by repetition and by the fifty-move rule are exact
 public class GameStatusHandler {
 
     public static final int NORMAL = 0;
     public static final int CHECK = 1;
     public static final int DRAW = 2;
     public static final int CHECKMATE = 3;
+    // The status is calculated only when it's first needed, until then it's unknown
+    public static final int UNKNOWN_STATUS = -1;
     public static final int EARLY_GAME = 0;
     public static final int MID_GAME = 1;
     public static final int END_GAME = 2;
 
+    private static final int INITIAL_POSITION_HISTORY_SIZE = 256;
+    private static final int FIFTY_MOVE_RULE_HALF_MOVES = 100;
+    private static final int NUMBER_OF_REPETITIONS_FOR_DRAW = 2;
+
     private int gameStatus;
     private int gameStage;
 
-    private boolean repetition = false;
-    LinkedList<PieceMove> listOfMoves = new LinkedList<>();
+    private long[] positionHistory = new long[INITIAL_POSITION_HISTORY_SIZE];
+    private int positionHistorySize;
+    private int halfMoveClock;
+    // The first position in the history that can be repeated, positions before a null move are not counted
+    private int repetitionHistoryStart;
 
 
     // Empty builder
@@ -28,41 +36,66 @@ public class GameStatusHandler {
     }
 
     // Copy builder
-    @SuppressWarnings("unchecked")
     public GameStatusHandler(GameStatusHandler gameStatusHandler) {
-        this.repetition = gameStatusHandler.repetition;
         this.gameStage = gameStatusHandler.gameStage;
         this.gameStatus = gameStatusHandler.gameStatus;
-        this.listOfMoves = (LinkedList<PieceMove>) gameStatusHandler.listOfMoves.clone();
+        this.positionHistory = gameStatusHandler.positionHistory.clone();
+        this.positionHistorySize = gameStatusHandler.positionHistorySize;
+        this.halfMoveClock = gameStatusHandler.halfMoveClock;
+        this.repetitionHistoryStart = gameStatusHandler.repetitionHistoryStart;
+    }
+
+    // Update game stage, half move clock and position history according to the move played, the status of the game is
+    // calculated only when it's first needed, since finding it requires looking for a legal move
+    public void afterTurnHandler(ChessGame game, boolean isIrreversibleMove) {
+        gameStage = updateGameStage(game.getAllPieceBitBoard());
+        halfMoveClock = isIrreversibleMove ? 0 : halfMoveClock + 1;
+        pushPosition(game.getHash());
+        gameStatus = UNKNOWN_STATUS;
+    }
+
+    // Update the game after a null move, the half move clock keeps counting, but the positions before the null move are
+    // not really the same game, so the repetitions are counted from the position after it
+    public void afterNullMoveHandler(ChessGame game) {
+        afterTurnHandler(game, false);
+        repetitionHistoryStart = positionHistorySize - 1;
     }
 
-    // Update game status and game stage according to the move played and status of the game, return the game status
-    public int afterTurnHandler(PieceMove movePlayed, ChessGame game) {
-        listOfMoves.add(movePlayed);
-        gameStage = updateGameStage(game.getPieceList());
+    // Calculate the status of the game
+    private int calculateGameStatus(ChessGame game) {
         boolean doesPlayerHaveMove = doesPlayerHasLegalMovesToPlay(game.getPlayerToPlay(), game);
 
         // If player is checked, and player has no move to do its checkmate, otherwise check
         // If player is not checked, and can't move, it's a draw
         if (isPlayerChecked(game)) {
             if (doesPlayerHaveMove)
-                return (gameStatus = CHECK);
+                return CHECK;
             else
-                return (gameStatus = CHECKMATE);
+                return CHECKMATE;
         } else if (!doesPlayerHaveMove)
-            return (gameStatus = DRAW);
+            return DRAW;
 
-        // Check if it's a draw by repetition
-        if (isRepetitionOfMoves(movePlayed))
-            return (gameStatus = DRAW);
+        // Check if it's a draw by repetition or by the fifty-move rule
+        if (isDrawByRepetition() || isDrawByFiftyMoveRule())
+            return DRAW;
 
-        return (gameStatus = NORMAL);
+        return NORMAL;
+    }
+
+    // Undo the last turn, remove the last position from the history and restore the status, stage, half move clock and
+    // the start of the repetition history
+    public void undoTurnHandler(int gameStatus, int gameStage, int halfMoveClock, int repetitionHistoryStart) {
+        positionHistorySize--;
+        this.gameStatus = gameStatus;
+        this.gameStage = gameStage;
+        this.halfMoveClock = halfMoveClock;
+        this.repetitionHistoryStart = repetitionHistoryStart;
     }
 
     // Update the current stage of the game
-    private int updateGameStage(LinkedList<Piece> piecesList) {
+    private int updateGameStage(long allPiecesBitBoard) {
         //TODO: for now its a demo function
-        int numberOfPiece = piecesList.size();
+        int numberOfPiece = Long.bitCount(allPiecesBitBoard);
         if (numberOfPiece > 33)
             return EARLY_GAME;
         if (numberOfPiece > 12)
@@ -71,44 +104,47 @@ public class GameStatusHandler {
         return END_GAME;
     }
 
-    // Check if a repetition of moves has occurs, if yes return true
-    private boolean isRepetitionOfMoves(PieceMove movePlayed) {
-        int listSize = listOfMoves.size(), currSquare = movePlayed.getCurrentPieceSquare(),
-                targetSquare = movePlayed.getTargetSquare();
-
-        // need to be at least 6 moves in the list
-        if (listSize < 9)
-            return false;
+    // Add the hash of a position to the position history, grow the history if it's full
+    private void pushPosition(long hash) {
+        if (positionHistorySize == positionHistory.length)
+            positionHistory = Arrays.copyOf(positionHistory, positionHistory.length * 2);
 
-        // Get the 2 last turn of the player who just played, and check if they're the same as this player
-        PieceMove prevMove = listOfMoves.get(listSize - 5);
-        PieceMove prevPrevMove = listOfMoves.get(listSize - 9);
+        positionHistory[positionHistorySize++] = hash;
+    }
 
+    // Check if the current position has occurred twice before, if yes it's a draw by repetition
+    public boolean isDrawByRepetition() {
+        long hash = positionHistory[positionHistorySize - 1];
+        int repetitions = 0;
+        int firstReversiblePosition = Math.max(repetitionHistoryStart, positionHistorySize - 1 - halfMoveClock);
 
-        // Check if the player has repeated on 3 move
-        if (currSquare == prevMove.getCurrentPieceSquare() && currSquare == prevPrevMove.getCurrentPieceSquare()
-                && targetSquare == prevMove.getTargetSquare() && targetSquare == prevPrevMove.getTargetSquare())
-            // If the enemy repeated moves on the last turn, it's a draw
-            if (repetition)
+        // Only positions since the last irreversible move or null move with the same player turn can be the same
+        // position
+        for (int i = positionHistorySize - 3; i >= firstReversiblePosition; i -= 2)
+            if (positionHistory[i] == hash && ++repetitions == NUMBER_OF_REPETITIONS_FOR_DRAW)
                 return true;
-            else { // Not a draw, but now enemy can make a draw if they repeat moves them self
-                repetition = true;
-                return false;
-            }
 
-        return (repetition = false);
+        return false;
+    }
+
+    // Check if 50 moves of each player were played without a pawn move or a capture, if yes it's a draw
+    public boolean isDrawByFiftyMoveRule() {
+        return halfMoveClock >= FIFTY_MOVE_RULE_HALF_MOVES;
     }
 
     // Check if a player has a legal moves to do, if it has at least 1 return true
     private boolean doesPlayerHasLegalMovesToPlay(boolean playerColor, ChessGame game) {
         // Check if at least 1 of the player pieces has a move to do
-        for (Piece piece : game.getCopyOfPieceList()) {
-            if (piece.getColor() == playerColor) {
-                long pieceMovement = game.getLegalMovesAsBitBoard(piece);
-                if (pieceMovement != 0)
-                    // Found move, return true
-                    return true;
-            }
+        long squaresThreatenByEnemy = game.getBitBoardOfSquaresThreatenByEnemy();
+        long pieces = game.getColorBitBoard(playerColor);
+        while (pieces != 0) {
+            long pieceMovement = game.getLegalMovesAsBitBoard((byte) Long.numberOfTrailingZeros(pieces),
+                    squaresThreatenByEnemy);
+            if (pieceMovement != 0)
+                // Found move, return true
+                return true;
+
+            pieces &= pieces - 1;
         }
         // Didn't find any move, return false
         return false;
@@ -116,12 +152,20 @@ public class GameStatusHandler {
 
     // Given a color of a player, check if their king is checked, if yes return true
     public boolean isPlayerChecked(ChessGame game) {
-        // Check if king is on one of the movement squares of enemy piece
-        return (game.currentPlayerKing.getSquareAsBitBoard() & game.getBitBoardOfSquaresThreatenByEnemy()) != 0;
+        // Check if any enemy piece checks the king
+        return game.isPlayerChecked();
     }
 
-    // Get method of game status
-    public int getGameStatus() {
+    // Get method of game status, calculate it if it's not known yet
+    public int getGameStatus(ChessGame game) {
+        if (gameStatus == UNKNOWN_STATUS)
+            gameStatus = calculateGameStatus(game);
+
+        return gameStatus;
+    }
+
+    // Get method of game status as it's known now, without calculating it
+    public int getKnownGameStatus() {
         return gameStatus;
     }
 
@@ -130,14 +174,29 @@ public class GameStatusHandler {
         return gameStage;
     }
 
+    // Get the number of half moves since the last pawn move or capture
+    public int getHalfMoveClock() {
+        return halfMoveClock;
+    }
+
+    // Get the first position in the history that can be repeated
+    public int getRepetitionHistoryStart() {
+        return repetitionHistoryStart;
+    }
+
     // Return if the game is over, either a draw or a checkmate
-    public boolean isGameOver() {
+    public boolean isGameOver(ChessGame game) {
+        int gameStatus = getGameStatus(game);
         return gameStatus == DRAW || gameStatus == CHECKMATE;
     }
 
-    public void initialize(ChessGame game) {
-        afterTurnHandler(new PieceMove(), game);
-        gameStage = updateGameStage(game.getPieceList());
-        listOfMoves.clear();
+    // Initialize the handler for a new game, the position of the game is the first in the history
+    public void initialize(ChessGame game, int halfMoveClock) {
+        positionHistorySize = 0;
+        repetitionHistoryStart = 0;
+        pushPosition(game.getHash());
+        this.halfMoveClock = halfMoveClock;
+        gameStage = updateGameStage(game.getAllPieceBitBoard());
+        gameStatus = UNKNOWN_STATUS;
     }
 }
@@ -1,126 +1,166 @@
 package gamelogic;
 
-import gamelogic.pieces.King;
-import gamelogic.pieces.Pawn;
 import gamelogic.pieces.Piece;
-
-import java.util.LinkedList;
+import gamelogic.pieces.PieceMovement;
+import gamelogic.pieces.PieceThreateningLine;
+import gamelogic.preemptivecalculators.PreemptiveCalculator;
 
 import static gamelogic.GameLogicUtilities.WHITE_PAWN_MOVE_OFFSET;
 
 // Class that handle all the aspects of making only legal moves
 // king not walking into a check, not letting piece move and expose their own king to check
+// Once per position, calculate the pieces that check the king, the squares that stop the check and the pinned pieces
+// with the line each of them is pinned on, so the legal moves of a piece are found with a few bitwise operations
 public class LegalMoveHandler {
 
-    private final LinkedList<Long> threatLineList = new LinkedList<>();
+    private static final PieceMovement pieceMovement = new PieceMovement();
+    private static final PieceThreateningLine threateningLine = new PieceThreateningLine();
+    private static final byte NO_EN_PASSANT_SQUARE = -1;
+
+    private long checkersBitBoard;
+    private long stopCheckSquares;
+    private long pinnedPiecesBitBoard;
+    private final long[] pinLines = new long[GameLogicUtilities.BOARD_SIZE];
 
-    // Empty constructor, need to update threat line to initialize
+    // Empty constructor, need to update checkers and pins to initialize
     public LegalMoveHandler() {
     }
 
     // Given the current square of the piece and the target square, check if it's a valid move or not
-    public boolean isValidMove(byte currentSquare, byte targetSquare, Piece[] pieceBoard, boolean colorOfPlayersTurn,
+    public boolean isValidMove(byte currentSquare, byte targetSquare, long playerTurnPiecesBitBoard,
                                long bitBoardLegalMoves) {
-        Piece pieceToMove = pieceBoard[currentSquare];
-
         // Check if the piece is the same color of the player whom turn it is
-        if (pieceToMove.getColor() == !colorOfPlayersTurn)
+        if ((playerTurnPiecesBitBoard & GameLogicUtilities.squareAsBitBoard(currentSquare)) == 0)
             return false;
 
         // Check if the target square is a legal move the piece can do
         return (bitBoardLegalMoves & GameLogicUtilities.squareAsBitBoard(targetSquare)) != 0;
     }
 
-    // Given a piece and the bitboard of moves it can do, remove all moves that are illegal
+    // Given a piece type and its square and the bitboard of moves it can do, remove all moves that are illegal
     //  moves are king walking into a check or piece move that will case a check
-    public long removeIllegalMoves(long bitBoardMoves, Piece pieceToMove, LinkedList<Piece> pieceList,
-                                   boolean colorOfPlayersTurn, long allPiecesBitBoard, long playerTurnPiecesBitBoard,
-                                   boolean isKPlayerTurnKingChecked, byte enPassantSquare, Piece king) {
+    public long removeIllegalMoves(long bitBoardMoves, byte pieceType, byte square, boolean colorOfPlayersTurn,
+                                   byte enPassantSquare, long squaresThreatenedForKing) {
 
-        long piecePositionAsBitBoard = pieceToMove.getSquareAsBitBoard(),
-                kingPositionBitBoard = king.getSquareAsBitBoard();
-
-        long enPassantSquareBitBoardPosition = GameLogicUtilities.squareAsBitBoard(enPassantSquare);
         // If king, remove all squares that enemy piece threat
-        if (pieceToMove instanceof King) {
-            long threatenedSquare = threatenedSquareForKing(pieceList, allPiecesBitBoard, colorOfPlayersTurn, king);
-            return bitBoardMoves & ~threatenedSquare;
+        if (pieceType == Piece.KING)
+            return bitBoardMoves & ~squaresThreatenedForKing;
+
+        // In double check only the king can move
+        if (isDoubleCheck())
+            return 0;
+
+        // While king check, the piece must capture the checking piece or block the check
+        if (checkersBitBoard != 0) {
+            long stopCheckSquaresOfPiece = stopCheckSquares;
+            // A pawn can also stop a check of a pawn by capturing it en-passant
+            long enPassantSquareBitBoardPosition = GameLogicUtilities.squareAsBitBoard(enPassantSquare);
+            if (pieceType == Piece.PAWN && enPassantSquare != NO_EN_PASSANT_SQUARE
+                    && isEnPassantPawnChecking(enPassantSquareBitBoardPosition, colorOfPlayersTurn))
+                stopCheckSquaresOfPiece |= enPassantSquareBitBoardPosition;
+
+            bitBoardMoves &= stopCheckSquaresOfPiece;
         }
 
-        if (isKPlayerTurnKingChecked) {
-            // flag to check if en-passant need to be added to one of the threat lines
-            boolean flag = pieceToMove instanceof Pawn && enPassantSquare != -1
-                    && (enPassantSquareBitBoardPosition & bitBoardMoves) != 0;
-            // While king check, only if u can stop all checks
-            for (Long threatLine : threatLineList) {
-                // Find the matching threat line to add it the en-passant square
-                if (flag && doesNeedToAddEnPassantToThreatLine(threatLine, enPassantSquareBitBoardPosition,
-                        colorOfPlayersTurn))
-                    threatLine |= enPassantSquareBitBoardPosition;
-
-                // Check if some piece already block this threat line, if not, piece most block it
-                if ((threatLine & (playerTurnPiecesBitBoard & ~kingPositionBitBoard)) == 0)
-                    bitBoardMoves &= threatLine;
-
-                // If piece is on a threat line, that piece most stay on that threat line
-                if ((threatLine & piecePositionAsBitBoard) != 0)
-                    bitBoardMoves &= threatLine;
-            }
-        } else {
-            // Check if moving a piece won't expose the king to a check
-            for (Long threatLine : threatLineList) {
-                if ((piecePositionAsBitBoard & threatLine) != 0)
-                    return bitBoardMoves & threatLine;
-            }
-        }
+        // If piece is pinned, that piece must stay on the line it is pinned on
+        if ((pinnedPiecesBitBoard & GameLogicUtilities.squareAsBitBoard(square)) != 0)
+            bitBoardMoves &= pinLines[square];
+
         return bitBoardMoves;
     }
 
-    // Update the treating lines
-    public void updateTreatingLines(LinkedList<Piece> pieceList, long allPiecesBitBoard, long enemyPiecesBitBoard,
-                                    boolean colorOfPlayersTurn, Piece myKing) {
-
-        threatLineList.clear();
-        for (Piece piece : pieceList) {
-            long treatKingLine = 0;
-            // If piece is enemy piece and line piece, get its treating line
-            if (piece.getColor() != colorOfPlayersTurn)
-                treatKingLine = piece.getThreatLines(myKing.getSquare(), allPiecesBitBoard);
+    // Update the pieces that check the king of the player turn, the squares that stop the check and the pinned pieces
+    public void updateCheckersAndPins(ChessGame game) {
+        boolean colorOfPlayersTurn = game.getPlayerToPlay();
+        byte kingSquare = game.getPlayerTurnKingSquare();
+        long allPiecesBitBoard = game.getAllPieceBitBoard(), playerTurnPiecesBitBoard = game.getSameColorPieceBitBoard();
+
+        // Knights and pawns check the king from the squares a knight or pawn on the king square would attack
+        checkersBitBoard = (pieceMovement.getKnightMovement(kingSquare, GameLogicUtilities.EMPTY_BOARD)
+                & game.getPieceTypeBitBoard(Piece.KNIGHT, !colorOfPlayersTurn))
+                | (pieceMovement.getPawnCaptureSquare(colorOfPlayersTurn, kingSquare)
+                & game.getPieceTypeBitBoard(Piece.PAWN, !colorOfPlayersTurn));
+        stopCheckSquares = checkersBitBoard;
+        pinnedPiecesBitBoard = 0;
+
+        // Only line pieces on the lines of the king can check it or pin a piece, the bitboard a piece is taken from
+        // tells on which line of the king it is
+        long enemyQueens = game.getPieceTypeBitBoard(Piece.QUEEN, !colorOfPlayersTurn);
+        long rookLinePieces = (game.getPieceTypeBitBoard(Piece.ROOK, !colorOfPlayersTurn) | enemyQueens)
+                & PreemptiveCalculator.ROOK_MASK[kingSquare];
+        long bishopLinePieces = (game.getPieceTypeBitBoard(Piece.BISHOP, !colorOfPlayersTurn) | enemyQueens)
+                & PreemptiveCalculator.BISHOP_MASK[kingSquare];
+
+        // Go over only the line pieces, removing the lowest one each time
+        while (rookLinePieces != 0) {
+            byte square = (byte) Long.numberOfTrailingZeros(rookLinePieces);
+            rookLinePieces &= rookLinePieces - 1;
+            updateCheckerOrPin(square, threateningLine.getRookThreateningLine(square, kingSquare, allPiecesBitBoard),
+                    allPiecesBitBoard, playerTurnPiecesBitBoard);
+        }
+        while (bishopLinePieces != 0) {
+            byte square = (byte) Long.numberOfTrailingZeros(bishopLinePieces);
+            bishopLinePieces &= bishopLinePieces - 1;
+            updateCheckerOrPin(square, threateningLine.getBishopThreateningLine(square, kingSquare, allPiecesBitBoard),
+                    allPiecesBitBoard, playerTurnPiecesBitBoard);
+        }
+    }
 
-            //  add treating line is not 0, and remove threats line that in the path of them there same color piece
-            if (treatKingLine != 0 && (treatKingLine & ~piece.getSquareAsBitBoard() & enemyPiecesBitBoard) == 0)
-                threatLineList.add(treatKingLine);
+    // Given a line piece square and its threat line on the king, add it as a checker or add the piece it pins
+    private void updateCheckerOrPin(byte square, long threatLine, long allPiecesBitBoard,
+                                    long playerTurnPiecesBitBoard) {
+        long piecesOnThreatLine = threatLine & allPiecesBitBoard & ~GameLogicUtilities.squareAsBitBoard(square);
+
+        // No piece between the line piece and the king, its a check
+        if (threatLine != 0 && piecesOnThreatLine == 0) {
+            checkersBitBoard |= GameLogicUtilities.squareAsBitBoard(square);
+            stopCheckSquares |= threatLine;
+            // 1 piece of the player turn between the line piece and the king, it is pinned
+        } else if ((piecesOnThreatLine & playerTurnPiecesBitBoard) != 0) {
+            pinnedPiecesBitBoard |= piecesOnThreatLine;
+            pinLines[Long.numberOfTrailingZeros(piecesOnThreatLine)] = threatLine;
         }
     }
 
-    // The threat line of the pawn who played en-passant, is 8 squares backwards from its threat square
-    // it should be the only square of the threat square, and it's the only threat line en-passant should be added to
-    private boolean doesNeedToAddEnPassantToThreatLine(Long threatLine, Long enPassantSquareBitBoardPosition,
-                                                       boolean colorOfPlayersTurn) {
+    // Return if the king of the player turn is checked
+    public boolean isChecked() {
+        return checkersBitBoard != 0;
+    }
 
+    // Return if the king of the player turn is checked by 2 pieces
+    public boolean isDoubleCheck() {
+        return Long.bitCount(checkersBitBoard) > 1;
+    }
+
+    // The pawn who played en-passant is 8 squares backwards from the en-passant square,
+    // check if it's the only piece that checks the king
+    private boolean isEnPassantPawnChecking(long enPassantSquareBitBoardPosition, boolean colorOfPlayersTurn) {
         if (colorOfPlayersTurn)
-            return (threatLine & ~(enPassantSquareBitBoardPosition >> WHITE_PAWN_MOVE_OFFSET)) == 0;
+            return checkersBitBoard == (enPassantSquareBitBoardPosition >>> WHITE_PAWN_MOVE_OFFSET);
 
-        return (threatLine & ~(enPassantSquareBitBoardPosition << WHITE_PAWN_MOVE_OFFSET)) == 0;
+        return checkersBitBoard == (enPassantSquareBitBoardPosition << WHITE_PAWN_MOVE_OFFSET);
     }
 
-    // Return as bitboard all the squares that are threatened by enemy player
-    private long threatenedSquareForKing(LinkedList<Piece> pieceList, long allPiecesBitBoard,
-                                         boolean colorOfPlayersTurn, Piece king) {
-
+    // Return as bitboard all the squares that are threatened by enemy player, that the king can't move to
+    // The enemy pieces are taken from the bitboard of each piece type, without going over the pieces themselves
+    public long getSquaresThreatenedForKing(ChessGame game) {
+        boolean enemyColor = !game.getPlayerToPlay();
         // By removing the king, squares that are threatened beyond him will also be marked
-        long kingBitBoardSquare = king.getSquareAsBitBoard();
-        long bitBoardWithoutKing = allPiecesBitBoard & ~kingBitBoardSquare;
+        long bitBoardWithoutKing = game.getAllPieceBitBoard()
+                & ~game.getPieceTypeBitBoard(Piece.KING, game.getPlayerToPlay());
         long movementBitBoard = 0;
-        // For each piece in piece list, added the movement of pieces with same color as player
-        for (Piece piece : pieceList)
-            if (piece.getColor() == !colorOfPlayersTurn)
-                if (piece instanceof Pawn)
-                    movementBitBoard |= ((Pawn) piece).getPawnAttackSquare();
-                else
-                    // By setting friendly pieces to 0, pieces that are protected are also marked
-                    movementBitBoard |= piece.getMovesAsBitBoard(bitBoardWithoutKing, GameLogicUtilities.EMPTY_BOARD);
 
+        // For each enemy piece type, add the squares attacked by the pieces of that type
+        // The attacks include the squares of pieces of both colors, so pieces that are protected are also marked
+        for (int pieceType = Piece.KING; pieceType <= Piece.QUEEN; pieceType++) {
+            long pieces = game.getPieceTypeBitBoard(pieceType, enemyColor);
+            while (pieces != 0) {
+                byte square = (byte) Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                movementBitBoard |= pieceMovement.getAttacksAsBitBoard(pieceType, square, enemyColor,
+                        bitBoardWithoutKing);
+            }
+        }
         return movementBitBoard;
     }
 }
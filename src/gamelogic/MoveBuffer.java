@@ -0,0 +1,73 @@
+package gamelogic;
+
+// Class that represent a buffer of encoded moves, with a value for each move that is used to order them
+// A buffer is created once and reused, so generating moves into it doesn't create any objects
+public class MoveBuffer {
+
+    // There is no legal position with more than 218 moves
+    public static final int MAX_NUMBER_OF_MOVES = 256;
+
+    private final int[] moves = new int[MAX_NUMBER_OF_MOVES];
+    private final int[] moveValues = new int[MAX_NUMBER_OF_MOVES];
+    private int size;
+
+    // Remove all the moves from the buffer
+    public void clear() {
+        size = 0;
+    }
+
+    // Add a move to the end of the buffer
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    // Return the move on the index given
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    // Return the number of moves in the buffer
+    public int size() {
+        return size;
+    }
+
+    // Set the value of the move on the index given
+    public void setMoveValue(int index, int moveValue) {
+        moveValues[index] = moveValue;
+    }
+
+    // Return the value of the move on the index given
+    public int getMoveValue(int index) {
+        return moveValues[index];
+    }
+
+    // Find the move with the highest value from the index given to the end of the buffer, swap it to the index given
+    // and return it. Picking the moves one by one this way, only the moves that are used are sorted
+    public int pickBestMove(int index) {
+        int bestIndex = index;
+        for (int i = index + 1; i < size; i++)
+            if (moveValues[i] > moveValues[bestIndex])
+                bestIndex = i;
+
+        int move = moves[bestIndex], moveValue = moveValues[bestIndex];
+        moves[bestIndex] = moves[index];
+        moveValues[bestIndex] = moveValues[index];
+        moves[index] = move;
+        moveValues[index] = moveValue;
+        return move;
+    }
+
+    // Sort the moves from the highest value to the lowest, moves with the same value keep their order
+    public void sortByMoveValue() {
+        for (int i = 1; i < size; i++) {
+            int move = moves[i], moveValue = moveValues[i], j = i - 1;
+            while (j >= 0 && moveValues[j] < moveValue) {
+                moves[j + 1] = moves[j];
+                moveValues[j + 1] = moveValues[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            moveValues[j + 1] = moveValue;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package gamelogic;
+
+import gamelogic.pieces.Piece;
+import gamelogic.pieces.PieceMovement;
+
+/*
+ Class responsible for generating all the legal moves of the player turn in a single pass.
+ Everything that is the same for all the pieces - the squares threatened by the enemy, the pieces that check the king
+ and the pinned pieces - is calculated once for the position, then the legal moves of each piece are found with a few
+ bitwise operations, and written into a move buffer as encoded moves
+ The pieces are found by their square and type only, so generating moves doesn't touch the board of pieces
+ */
+public class MoveGenerator {
+
+    private static final PieceMovement pieceMovement = new PieceMovement();
+    private static final long PROMOTION_ROWS = 0xFF000000000000FFL;
+    private static final int CASTLING_DISTANCE = 2;
+    private static final int[] PROMOTION_PIECE_TYPES = {Piece.QUEEN, Piece.ROOK, Piece.KNIGHT, Piece.BISHOP};
+    private static final int NO_PROMOTION = 0;
+
+    // Given a ChessGame, put all the legal moves of the player turn into the move buffer, encoded as int
+    public static void generateLegalMoves(ChessGame game, MoveBuffer moveBuffer) {
+        moveBuffer.clear();
+        // The checkers and pinned pieces are calculated when the move is made, the threatened squares only once here
+        long squaresThreatenByEnemy = game.getBitBoardOfSquaresThreatenByEnemy();
+        // Go over only the pieces of the player turn, by the bitboard of their squares
+        long pieces = game.getSameColorPieceBitBoard();
+        while (pieces != 0) {
+            byte square = (byte) Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addMoves(square, game.getPieceType(square), game.getLegalMovesAsBitBoard(square, squaresThreatenByEnemy),
+                    game, moveBuffer);
+        }
+    }
+
+    // Given a ChessGame, put only the legal captures and promotions of the player turn into the move buffer
+    public static void generateLegalCapturesAndPromotions(ChessGame game, MoveBuffer moveBuffer) {
+        generateLegalCapturesAndPromotions(game, moveBuffer, game.getBitBoardOfSquaresThreatenByEnemy());
+    }
+
+    // Given a ChessGame and the squares threatened by the enemy, put only the legal captures and promotions of the
+    // player turn into the move buffer
+    public static void generateLegalCapturesAndPromotions(ChessGame game, MoveBuffer moveBuffer,
+                                                          long squaresThreatenByEnemy) {
+        moveBuffer.clear();
+        long pieces = game.getSameColorPieceBitBoard();
+        while (pieces != 0) {
+            byte square = (byte) Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            byte pieceType = game.getPieceType(square);
+            addMoves(square, pieceType, game.getLegalMovesAsBitBoard(square, squaresThreatenByEnemy,
+                    getCapturesAndPromotionsSquares(square, pieceType, game)), game, moveBuffer);
+        }
+    }
+
+    // Given a ChessGame and the squares threatened by the enemy, put only the legal moves of the player turn that are
+    // not captures or promotions into the move buffer
+    public static void generateLegalQuietMoves(ChessGame game, MoveBuffer moveBuffer, long squaresThreatenByEnemy) {
+        moveBuffer.clear();
+        long pieces = game.getSameColorPieceBitBoard();
+        while (pieces != 0) {
+            byte square = (byte) Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            byte pieceType = game.getPieceType(square);
+            addMoves(square, pieceType, game.getLegalMovesAsBitBoard(square, squaresThreatenByEnemy,
+                    ~getCapturesAndPromotionsSquares(square, pieceType, game)), game, moveBuffer);
+        }
+    }
+
+    // Given a ChessGame, a move identified by its first 16 bits (current square, target square and promotion) and the
+    // squares threatened by the enemy, return the move fully encoded if it's legal in the game, otherwise NO_MOVE
+    // Used for moves that were found in another position, like the move stored in the transposition table
+    public static int createLegalMove(ChessGame game, int shortMove, long squaresThreatenByEnemy) {
+        if (shortMove == EncodedMove.NO_MOVE)
+            return EncodedMove.NO_MOVE;
+
+        byte square = EncodedMove.getCurrentSquare(shortMove);
+        byte pieceType = game.getPieceType(square);
+        int targetSquare = EncodedMove.getTargetSquare(shortMove);
+        if (pieceType == Piece.NO_PIECE || game.getLegalMovesAsBitBoard(square, squaresThreatenByEnemy,
+                GameLogicUtilities.squareAsBitBoard(targetSquare)) == 0)
+            return EncodedMove.NO_MOVE;
+
+        // A move to the last row of a pawn must be a promotion, and only it
+        int promotionPieceType = EncodedMove.getPromotionPieceType(shortMove);
+        if (isPromotionSquare(pieceType, targetSquare) != (promotionPieceType != NO_PROMOTION))
+            return EncodedMove.NO_MOVE;
+
+        return encodeMove(square, pieceType, targetSquare, promotionPieceType, game);
+    }
+
+    // Return as bitboard the squares that a piece of the type on the square moving to will capture or promote
+    // A pawn captures only on the squares it attacks (also en passant), and promotes on the last row
+    private static long getCapturesAndPromotionsSquares(byte square, byte pieceType, ChessGame game) {
+        if (pieceType == Piece.PAWN)
+            return pieceMovement.getPawnCaptureSquare(game.getPlayerToPlay(), square) | PROMOTION_ROWS;
+
+        return game.getEnemyBitBoard();
+    }
+
+    // Given the square and type of a piece and a bitboard of its moves, add each move to the move buffer, encoded as
+    // int
+    private static void addMoves(byte square, byte pieceType, long pieceMovesBitBoards, ChessGame game,
+                                 MoveBuffer moveBuffer) {
+        // Go over only the squares that are on, removing the lowest one each time
+        while (pieceMovesBitBoards != 0) {
+            int targetSquare = Long.numberOfTrailingZeros(pieceMovesBitBoards);
+            pieceMovesBitBoards &= pieceMovesBitBoards - 1;
+
+            // A pawn that reach the last row, can promote to each of the promotion pieces
+            if (isPromotionSquare(pieceType, targetSquare))
+                for (int promotionPieceType : PROMOTION_PIECE_TYPES)
+                    moveBuffer.add(encodeMove(square, pieceType, targetSquare, promotionPieceType, game));
+            else
+                moveBuffer.add(encodeMove(square, pieceType, targetSquare, NO_PROMOTION, game));
+        }
+    }
+
+    // Given the square and type of a piece, its target square and the type of piece to promote to, return the move
+    // encoded as int
+    private static int encodeMove(byte square, byte pieceType, int targetSquare, int promotionPieceType,
+                                  ChessGame game) {
+        int flags = 0, capturedPieceType = 0;
+        byte pieceOnTargetSquareType = game.getPieceType(targetSquare);
+        if (pieceOnTargetSquareType != Piece.NO_PIECE) {
+            flags = EncodedMove.CAPTURE_FLAG;
+            capturedPieceType = pieceOnTargetSquareType;
+        } else if (pieceType == Piece.PAWN && targetSquare == game.getEnPassantSquare()) {
+            flags = EncodedMove.CAPTURE_FLAG | EncodedMove.EN_PASSANT_FLAG;
+            capturedPieceType = Piece.PAWN;
+        } else if (pieceType == Piece.KING && Math.abs(targetSquare - square) == CASTLING_DISTANCE)
+            flags = EncodedMove.CASTLING_FLAG;
+
+        return EncodedMove.encode(square, targetSquare, promotionPieceType, pieceType, capturedPieceType, flags);
+    }
+
+    // Return if a piece of the type moving to the target square promotes
+    private static boolean isPromotionSquare(byte pieceType, int targetSquare) {
+        return pieceType == Piece.PAWN && (GameLogicUtilities.squareAsBitBoard(targetSquare) & PROMOTION_ROWS) != 0;
+    }
+}
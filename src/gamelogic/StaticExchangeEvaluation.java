@@ -0,0 +1,119 @@
+package gamelogic;
+
+import gamelogic.pieces.Piece;
+import gamelogic.pieces.PieceMovement;
+
+import static gamelogic.pieces.PieceEvaluationConstants.PIECE_VALUE_BY_TYPE;
+
+/*
+ Util class for static exchange evaluation (SEE) - the material a move wins or loses after all the captures on its
+ target square that follow it, without searching any moves.
+ The pieces that attack the target square are found with the attack tables, and each side recaptures with its least
+ valuable attacker. When a piece captures, the line pieces behind it on the same line (x-ray attackers) join the
+ exchange. Each side can stop capturing when it's better for it, so the result is the best each side can get.
+ Pinned pieces and checks are not taken into account, so the result is an estimate for ordering and pruning moves
+ The gains of the exchange are written into a buffer that is allocated once, so each search thread needs its own
+ instance
+ */
+public class StaticExchangeEvaluation {
+
+    private static final PieceMovement pieceMovement = new PieceMovement();
+    // The attackers are picked from the least valuable type to the most valuable
+    private static final int[] ATTACKER_TYPES_BY_VALUE = {Piece.PAWN, Piece.KNIGHT, Piece.BISHOP, Piece.ROOK,
+            Piece.QUEEN, Piece.KING};
+    // There are at most 32 pieces, so there are never more captures than that on a square
+    private static final int MAX_EXCHANGE_LENGTH = 32;
+    private static final int NO_ATTACKER = -1;
+
+    // The material gained by each capture in the exchange from the side of the player that captures
+    private final int[] gain = new int[MAX_EXCHANGE_LENGTH];
+
+    // Given a game and a legal move of the player to play, return the material it wins (positive) or loses (negative)
+    // after the exchange on its target square. A quiet move has no gain of its own, so it's 0 or how much it loses
+    public int evaluate(ChessGame game, int move) {
+        byte targetSquare = EncodedMove.getTargetSquare(move);
+        boolean color = game.getPlayerToPlay();
+        long occupied = game.getAllPieceBitBoard() & ~GameLogicUtilities.squareAsBitBoard(
+                EncodedMove.getCurrentSquare(move));
+
+        int pieceOnTargetSquareValue = PIECE_VALUE_BY_TYPE[EncodedMove.getPieceToMoveType(move)];
+        gain[0] = EncodedMove.isCapture(move) ? PIECE_VALUE_BY_TYPE[EncodedMove.getCapturedPieceType(move)] : 0;
+
+        // The pawn captured en passant is not on the target square
+        if (EncodedMove.isEnPassant(move))
+            occupied &= ~GameLogicUtilities.squareAsBitBoard(targetSquare
+                    - (color ? GameLogicUtilities.WHITE_PAWN_MOVE_OFFSET : GameLogicUtilities.BLACK_PAWN_MOVE_OFFSET));
+
+        if (EncodedMove.isPromotion(move)) {
+            pieceOnTargetSquareValue = PIECE_VALUE_BY_TYPE[EncodedMove.getPromotionPieceType(move)];
+            gain[0] += pieceOnTargetSquareValue - PIECE_VALUE_BY_TYPE[Piece.PAWN];
+        }
+
+        long attackers = getAttackersOfSquare(game, targetSquare, occupied) & occupied;
+        boolean colorToCapture = !color;
+        int depth = 0;
+        while (true) {
+            // The material gained if the piece on the target square is captured, and the exchange stops after it
+            depth++;
+            gain[depth] = pieceOnTargetSquareValue - gain[depth - 1];
+            // If neither capturing nor stopping the exchange is good for the player, the result can't change
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0)
+                break;
+
+            int attackerType = getLeastValuableAttackerType(game, attackers, colorToCapture);
+            if (attackerType == NO_ATTACKER)
+                break;
+
+            long attackerBitBoard = attackers & game.getPieceTypeBitBoard(attackerType, colorToCapture);
+            occupied &= ~(attackerBitBoard & -attackerBitBoard);
+            // A line piece behind the attacker that captured now attacks the target square
+            attackers = (attackers | getLinePieceAttackers(game, targetSquare, occupied)) & occupied;
+            pieceOnTargetSquareValue = PIECE_VALUE_BY_TYPE[attackerType];
+            colorToCapture = !colorToCapture;
+        }
+
+        // Go back over the exchange, each side captures only if it's better for it than stopping
+        // The last gain is of a capture that didn't happen, so it's not counted
+        while (--depth > 0)
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        return gain[0];
+    }
+
+    // Given a square and the occupied squares, return the pieces of both colors that attack the square as bitboard
+    // A piece attacks the square from the squares the same type of piece on the square would attack
+    private static long getAttackersOfSquare(ChessGame game, byte square, long occupied) {
+        return (pieceMovement.getPawnCaptureSquare(GameLogicUtilities.BLACK, square)
+                & game.getPieceTypeBitBoard(Piece.PAWN, GameLogicUtilities.WHITE))
+                | (pieceMovement.getPawnCaptureSquare(GameLogicUtilities.WHITE, square)
+                & game.getPieceTypeBitBoard(Piece.PAWN, GameLogicUtilities.BLACK))
+                | (pieceMovement.getKnightMovement(square, GameLogicUtilities.EMPTY_BOARD)
+                & getPieceTypeOfBothColorsBitBoard(game, Piece.KNIGHT))
+                | (pieceMovement.getKingMovement(square, GameLogicUtilities.EMPTY_BOARD)
+                & getPieceTypeOfBothColorsBitBoard(game, Piece.KING))
+                | getLinePieceAttackers(game, square, occupied);
+    }
+
+    // Given a square and the occupied squares, return the line pieces of both colors that attack the square as bitboard
+    private static long getLinePieceAttackers(ChessGame game, byte square, long occupied) {
+        long queens = getPieceTypeOfBothColorsBitBoard(game, Piece.QUEEN);
+        return (pieceMovement.getRookAttacks(square, occupied)
+                & (getPieceTypeOfBothColorsBitBoard(game, Piece.ROOK) | queens))
+                | (pieceMovement.getBishopAttacks(square, occupied)
+                & (getPieceTypeOfBothColorsBitBoard(game, Piece.BISHOP) | queens));
+    }
+
+    // Given the attackers of a square and a color, return the type of the least valuable attacker of that color
+    // or NO_ATTACKER if there is none
+    private static int getLeastValuableAttackerType(ChessGame game, long attackers, boolean color) {
+        for (int pieceType : ATTACKER_TYPES_BY_VALUE)
+            if ((attackers & game.getPieceTypeBitBoard(pieceType, color)) != 0)
+                return pieceType;
+        return NO_ATTACKER;
+    }
+
+    // Given a piece type, return the pieces of that type of both colors as bitboard
+    private static long getPieceTypeOfBothColorsBitBoard(ChessGame game, int pieceType) {
+        return game.getPieceTypeBitBoard(pieceType, GameLogicUtilities.WHITE)
+                | game.getPieceTypeBitBoard(pieceType, GameLogicUtilities.BLACK);
+    }
+}
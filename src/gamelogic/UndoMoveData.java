@@ -0,0 +1,31 @@
+package gamelogic;
+
+// Class that represent all the data needed to undo a move that was made on a chess game:
+// the type and color of the piece that moved, the type of the piece it captured and of the piece it promoted to
+// (Piece.NO_PIECE if none), and the state of the game before the move - castling rights, en passant square, status,
+// stage, half move clock, start of the repetition history, hashes and the position value of the pieces in the middle
+// game and in the end game, and the game phase
+// A null move is saved with Piece.NO_PIECE as the type of the moved piece
+class UndoMoveData {
+    byte movedPieceType;
+    boolean movedPieceColor;
+    byte currentSquare;
+    byte targetSquare;
+
+    byte capturedPieceType;
+    byte capturedPieceSquare;
+    byte promotedPieceType;
+    boolean castlingMove;
+
+    byte castlingRights;
+    byte enPassantSquare;
+    int gameStatus;
+    int gameStage;
+    int halfMoveClock;
+    int repetitionHistoryStart;
+    long hash;
+    long pawnHash;
+    int middleGamePositionValue;
+    int endGamePositionValue;
+    int gamePhase;
+}
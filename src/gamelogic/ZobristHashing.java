@@ -0,0 +1,92 @@
+package gamelogic;
+
+import gamelogic.pieces.Piece;
+
+import java.util.Random;
+
+/*
+ Class responsible for the zobrist hashing of a chess game. Each piece type of each color on each square has a random
+ key, and so does each combination of castling rights, each file of an en passant square and the black player turn.
+ The hash of a position is the xor of all the keys that are true for it, that way when a move is made the hash can be
+ updated by xor-ing only the keys that have changed, and xor-ing them again undo the change.
+ The pawn hash is the xor of the keys of the pawns only, it identifies the pawn structure of a position.
+ */
+public class ZobristHashing {
+
+    private static final int NUMBER_OF_PIECE_TYPES = 6;
+    private static final int NUMBER_OF_CASTLING_RIGHTS_COMBINATIONS = 16;
+    private static final long SEED = 0x4C554E41L;
+
+    private static final long[] PIECE_KEYS = new long[NUMBER_OF_PIECE_TYPES * 2 * GameLogicUtilities.BOARD_SIZE];
+    private static final long[] CASTLING_RIGHTS_KEYS = new long[NUMBER_OF_CASTLING_RIGHTS_COMBINATIONS];
+    private static final long[] EN_PASSANT_FILE_KEYS = new long[GameLogicUtilities.BOARD_EDGE_SIZE];
+    private static final long BLACK_TURN_KEY;
+
+    public static final byte NO_EN_PASSANT_SQUARE = -1;
+
+    // Generate all the keys, using a fixed seed so the hash of a position is the same on every run
+    static {
+        Random random = new Random(SEED);
+        for (int i = 0; i < PIECE_KEYS.length; i++)
+            PIECE_KEYS[i] = random.nextLong();
+
+        for (int i = 0; i < CASTLING_RIGHTS_KEYS.length; i++)
+            CASTLING_RIGHTS_KEYS[i] = random.nextLong();
+
+        for (int i = 0; i < EN_PASSANT_FILE_KEYS.length; i++)
+            EN_PASSANT_FILE_KEYS[i] = random.nextLong();
+
+        BLACK_TURN_KEY = random.nextLong();
+    }
+
+    // Given a piece type, its color and a square, return the key of that piece on that square
+    public static long getPieceKey(int pieceType, boolean color, int square) {
+        int colorOffset = color ? 0 : NUMBER_OF_PIECE_TYPES;
+        return PIECE_KEYS[(pieceType + colorOffset) * GameLogicUtilities.BOARD_SIZE + square];
+    }
+
+    // Given a piece and a square, return the key of that piece on that square
+    public static long getPieceKey(Piece piece, int square) {
+        return getPieceKey(piece.getPieceType(), piece.getColor(), square);
+    }
+
+    // Given castling rights as a mask, return the key of those castling rights
+    public static long getCastlingRightsKey(byte castlingRights) {
+        return CASTLING_RIGHTS_KEYS[castlingRights];
+    }
+
+    // Given an en passant square, return the key of its file, if there is no en passant square return 0
+    public static long getEnPassantKey(byte enPassantSquare) {
+        if (enPassantSquare == NO_EN_PASSANT_SQUARE)
+            return 0;
+
+        return EN_PASSANT_FILE_KEYS[GameLogicUtilities.getColOfSquare(enPassantSquare)];
+    }
+
+    // Return the key of the player turn, only black turn change the hash
+    public static long getPlayerTurnKey(boolean colorOfPlayersTurn) {
+        return colorOfPlayersTurn ? 0 : BLACK_TURN_KEY;
+    }
+
+    // Given a chess game, calculate its hash from scratch
+    public static long calculateHash(ChessGame game) {
+        long hash = 0;
+        for (Piece piece : game.getPieceList())
+            hash ^= getPieceKey(piece, piece.getSquare());
+
+        hash ^= getCastlingRightsKey(game.getCastlingRights());
+        hash ^= getEnPassantKey(game.getEnPassantSquare());
+        hash ^= getPlayerTurnKey(game.getPlayerToPlay());
+        return hash;
+    }
+
+    // Given a chess game, calculate the hash of its pawns from scratch
+    public static long calculatePawnHash(ChessGame game) {
+        long pawnHash = 0;
+        for (Piece piece : game.getPieceList())
+            if (piece.getPieceType() == Piece.PAWN)
+                pawnHash ^= getPieceKey(piece, piece.getSquare());
+
+        return pawnHash;
+    }
+}
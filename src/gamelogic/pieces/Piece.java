@@ -2,45 +2,54 @@ package gamelogic.pieces;
 
 import gamelogic.GameLogicUtilities;
 
-// Abstract class that represent a piece, has 2 attributes
+// Abstract class that represent a piece, has 3 attributes
 // Color - color of the piece (white/black - true/false)
 // Square - square of the piece on the board
+// Piece type - the type of the piece, the moves and the value of the piece are found by it
 public abstract class Piece implements Cloneable {
 
-    public static final int QUEEN = 5;
-    public static final int ROOK = 4;
-    public static final int BISHOP = 3;
-    public static final int KNIGHT = 2;
-    public static final int PAWN = 1;
-    public static final int KING = 0;
+    public static final byte QUEEN = 5;
+    public static final byte ROOK = 4;
+    public static final byte BISHOP = 3;
+    public static final byte KNIGHT = 2;
+    public static final byte PAWN = 1;
+    public static final byte KING = 0;
+    // The type of an empty square
+    public static final byte NO_PIECE = -1;
 
 
     private byte square;
     private final boolean color;
+    private final byte pieceType;
 
-    protected static final PieceThreateningLine threateningLine = new PieceThreateningLine();
     protected static final PieceMovement pieceMovement = new PieceMovement();
 
     protected static final PieceEvaluation pieceEvaluation = new PieceEvaluation();
 
-    public Piece(byte square, boolean color) {
+    public Piece(byte square, boolean color, byte pieceType) {
         this.square = square;
         this.color = color;
+        this.pieceType = pieceType;
     }
 
 
-    // Abstract method, given bitboard of all pieces on the board and bitboard of only same color piece
-    // Return bitboard of all the move the piece can do (without checking if It's legal or not)
-    public abstract long getMovesAsBitBoard(long allPiecesBitBoard, long sameColorPiecesBitBoard);
+    // Given a piece type, a square and a color, create a piece of that type on the square
+    public static Piece createPiece(byte pieceType, byte square, boolean color) {
+        return switch (pieceType) {
+            case PAWN -> new Pawn(square, color);
+            case KNIGHT -> new Knight(square, color);
+            case BISHOP -> new Bishop(square, color);
+            case ROOK -> new Rook(square, color);
+            case QUEEN -> new Queen(square, color);
+            default -> new King(square, color);
+        };
+    }
 
-    /*
-    Given the enemy king and the board as a bitboard, return the treat line of this piece on a king as bitboard
-    treat line - if the piece threat the king, or if an enemy piece block the piece from threading the king
-    the treat line will be all the square from the piece to the king as bitboards
-    if more than 1 piece block a piece from treating, or the king is not even on the attack line, return 0
-    for pawns and a knight, a threat line is if they check the king, and the threat line is their square
-    */
-    public abstract long getThreatLines(byte enemyKingSquare, Long boardBitBoard);
+    // Given bitboard of all pieces on the board and bitboard of only same color piece
+    // Return bitboard of all the move the piece can do (without checking if It's legal or not)
+    public long getMovesAsBitBoard(long allPiecesBitBoard, long sameColorPiecesBitBoard) {
+        return pieceMovement.getMovesAsBitBoard(pieceType, square, color, allPiecesBitBoard, sameColorPiecesBitBoard);
+    }
 
     // Return the position of the piece as bitboard
     public long getSquareAsBitBoard() {
@@ -60,10 +69,6 @@ public abstract class Piece implements Cloneable {
         return color;
     }
 
-    public PieceMovement getPieceMovement() {
-        return pieceMovement;
-    }
-
     @Override
     public Piece clone() {
         try {
@@ -73,26 +78,24 @@ public abstract class Piece implements Cloneable {
         }
     }
 
-    // Return the value of the piece given its position and state of the board
-    public abstract int getPieceValue(long allPieceBitBoard, int gameStage);
-
-    // Return the piece type of the piece
-    public int getPieceType() {
-        if (this instanceof Queen)
-            return QUEEN;
-
-        if (this instanceof Rook)
-            return ROOK;
-
-        if (this instanceof Bishop)
-            return BISHOP;
+    // Return the value of the piece given its position and state of the board, tapered by the game phase
+    public int getPieceValue(long allPieceBitBoard, int gamePhase) {
+        return pieceEvaluation.evaluatePiece(pieceType, square, color, allPieceBitBoard, gamePhase);
+    }
 
-        if (this instanceof Knight)
-            return KNIGHT;
+    // Return the value of the piece by its type and square only in the game stage given, it changes only when the
+    // piece moves
+    public int getPositionValue(int gameStage) {
+        return pieceEvaluation.evaluatePosition(pieceType, square, color, gameStage);
+    }
 
-        if (this instanceof Pawn)
-            return PAWN;
+    // Return the value of the piece by the squares it attacks tapered by the game phase, only line pieces have one
+    public int getActivityValue(long allPieceBitBoard, int gamePhase) {
+        return pieceEvaluation.evaluateActivity(pieceType, square, allPieceBitBoard, gamePhase);
+    }
 
-        return KING;
+    // Return the piece type of the piece
+    public byte getPieceType() {
+        return pieceType;
     }
 }
@@ -1,76 +1,122 @@
 package gamelogic.pieces;
 
-import static gamelogic.GameStatusHandler.END_GAME;
-
+import gamelogic.GameStatusHandler;
 
 // Responsible for evaluation pieces given their position and state of the board
 // The power of lines pieces depends on their activity - how many squares they attack, and their position on the board
+// The power of a piece by its square changes only when it moves, so it's evaluated apart from its activity
+// The activity is tapered between its middle game and end game power by the game phase
+// A piece is evaluated by its type, square and color, so the engine can evaluate it without the piece itself
 public class PieceEvaluation extends PieceEvaluationConstants {
     private static final PieceMovement pieceMovement = new PieceMovement();
 
-    // Given a queen, all piece bitboard and gameStage, evaluate the power of the queen
-    public int evaluateQueen(Piece queen, long allPieceBitBoard, int gameStage) {
-        int multiplayer = gameStage == END_GAME ? QUEEN_MOVEMENT_MULTIPLIER_END : QUEEN_MOVEMENT_MULTIPLIER_EARLY;
-        int totalValue = QUEEN_INITIAL_POWER + evaluateActivity(queen, multiplayer, allPieceBitBoard);
-        totalValue += BISHOP_MAP[positionOnMapOfPiece(queen)];
-        return totalValue;
+    // Given a piece type, its square and color, all piece bitboard and game phase, return the value of the piece by its
+    // square and its activity, tapered by the game phase
+    public int evaluatePiece(int pieceType, byte square, boolean color, long allPieceBitBoard, int gamePhase) {
+        return taperedValue(evaluatePosition(pieceType, square, color, GameStatusHandler.MID_GAME),
+                evaluatePosition(pieceType, square, color, GameStatusHandler.END_GAME), gamePhase)
+                + evaluateActivity(pieceType, square, allPieceBitBoard, gamePhase);
+    }
+
+    // Given a piece type, its square and color and a game stage, evaluate the power of the piece by its type and square
+    public int evaluatePosition(int pieceType, byte square, boolean color, int gameStage) {
+        return switch (pieceType) {
+            case Piece.PAWN -> evaluatePawn(square, color, gameStage);
+            case Piece.KNIGHT -> evaluateKnight(square, gameStage);
+            case Piece.BISHOP -> evaluateBishopPosition(square);
+            case Piece.ROOK -> evaluateRookPosition(square, color);
+            case Piece.QUEEN -> evaluateQueenPosition(square, color);
+            default -> evaluateKingPosition(square, color, gameStage);
+        };
+    }
+
+    // Given a piece type, its square, all piece bitboard and game phase, evaluate the power of the piece by its activity
+    // Only line pieces have an activity value
+    public int evaluateActivity(int pieceType, byte square, long allPieceBitBoard, int gamePhase) {
+        return switch (pieceType) {
+            case Piece.BISHOP -> evaluateBishopActivity(square, allPieceBitBoard);
+            case Piece.ROOK -> evaluateRookActivity(square, allPieceBitBoard, gamePhase);
+            case Piece.QUEEN -> evaluateQueenActivity(square, allPieceBitBoard, gamePhase);
+            default -> 0;
+        };
+    }
+
+    // Given the square and color of a queen, evaluate the power of the queen by its square
+    public int evaluateQueenPosition(byte square, boolean color) {
+        return QUEEN_INITIAL_POWER + BISHOP_MAP[positionOnMapOfPiece(square, color)];
     }
 
-    // Given a rook, all piece bitboard and gameStage, evaluate the power of the rook
-    public int evaluateRook(Piece rook, long allPiecesBitBoard, int gameStage) {
-        int multiplayer = gameStage == END_GAME ? ROOK_MOVEMENT_MULTIPLIER_END : ROOK_MOVEMENT_MULTIPLIER_EARLY;
-        int totalValue = ROOK_INITIAL_POWER + evaluateActivity(rook, multiplayer, allPiecesBitBoard);
-        totalValue += ROOK_MAP[positionOnMapOfPiece(rook)];
-        return totalValue;
+    // Given the square of a queen, all piece bitboard and game phase, evaluate the power of the queen by its activity
+    public int evaluateQueenActivity(byte square, long allPieceBitBoard, int gamePhase) {
+        int numberOfMoves = numberOfMoves(Piece.QUEEN, square, allPieceBitBoard);
+        return taperedValue(numberOfMoves * QUEEN_MOVEMENT_MULTIPLIER_EARLY,
+                numberOfMoves * QUEEN_MOVEMENT_MULTIPLIER_END, gamePhase);
     }
 
-    // Given a bishop and all piece bitboard, evaluate the power of the bishop
-    public int evaluateBishop(Piece bishop, long allPiecesBitBoard) {
-        int totalValue = BISHOP_INITIAL_POWER + evaluateActivity(bishop, BISHOP_MOVEMENT_MULTIPLIER, allPiecesBitBoard);
-        totalValue += BISHOP_MAP[bishop.getSquare()];
-        return totalValue;
+    // Given the square and color of a rook, evaluate the power of the rook by its square
+    public int evaluateRookPosition(byte square, boolean color) {
+        return ROOK_INITIAL_POWER + ROOK_MAP[positionOnMapOfPiece(square, color)];
     }
 
-    // Given a knight and stage game, evaluate the power of the bishop
-    public int evaluateKnight(Piece knight, int gameStage) {
-        return KNIGHT_INITIAL_POWER + KNIGHT_MAPS[gameStage][knight.getSquare()];
+    // Given the square of a rook, all piece bitboard and game phase, evaluate the power of the rook by its activity
+    public int evaluateRookActivity(byte square, long allPiecesBitBoard, int gamePhase) {
+        int numberOfMoves = numberOfMoves(Piece.ROOK, square, allPiecesBitBoard);
+        return taperedValue(numberOfMoves * ROOK_MOVEMENT_MULTIPLIER_EARLY,
+                numberOfMoves * ROOK_MOVEMENT_MULTIPLIER_END, gamePhase);
     }
 
-    // Given a pawn, game stage and all piece bitboard, evaluate the power of the pawn
-    public int evaluatePawn(Piece pawn, int gameStage) {
-        if (pawn.getColor())
-            return PAWN_MAPS_WHITE[gameStage][positionOnMapOfPiece(pawn)] + PAWN_INITIAL_POWER;
+    // Given the square of a bishop, evaluate the power of the bishop by its square
+    public int evaluateBishopPosition(byte square) {
+        return BISHOP_INITIAL_POWER + BISHOP_MAP[square];
+    }
+
+    // Given the square of a bishop and all piece bitboard, evaluate the power of the bishop by its activity
+    public int evaluateBishopActivity(byte square, long allPiecesBitBoard) {
+        return numberOfMoves(Piece.BISHOP, square, allPiecesBitBoard) * BISHOP_MOVEMENT_MULTIPLIER;
+    }
 
-        return PAWN_MAPS_BLACK[gameStage][positionOnMapOfPiece(pawn)] + PAWN_INITIAL_POWER;
+    // Given the square of a knight and stage game, evaluate the power of the bishop
+    public int evaluateKnight(byte square, int gameStage) {
+        return KNIGHT_INITIAL_POWER + KNIGHT_MAPS[gameStage][square];
     }
 
-    // Given a king, game stage and all piece bitboard, evaluate the power of the king
-    public int evaluateKingPosition(Piece king, int gameStage) {
-        if (king.getColor())
-            return (-KING_MAPS_WHITE[gameStage][positionOnMapOfPiece(king)]);
+    // Given the square and color of a pawn and game stage, evaluate the power of the pawn
+    public int evaluatePawn(byte square, boolean color, int gameStage) {
+        if (color)
+            return PAWN_MAPS_WHITE[gameStage][positionOnMapOfPiece(square, color)] + PAWN_INITIAL_POWER;
 
-        return (-KING_MAPS_BLACK[gameStage][positionOnMapOfPiece(king)]);
+        return PAWN_MAPS_BLACK[gameStage][positionOnMapOfPiece(square, color)] + PAWN_INITIAL_POWER;
+    }
+
+    // Given the square and color of a king and game stage, evaluate the power of the king
+    public int evaluateKingPosition(byte square, boolean color, int gameStage) {
+        if (color)
+            return (-KING_MAPS_WHITE[gameStage][positionOnMapOfPiece(square, color)]);
+
+        return (-KING_MAPS_BLACK[gameStage][positionOnMapOfPiece(square, color)]);
     }
 
     // If white return piece position, if black return piece 63-position
-    private int positionOnMapOfPiece(Piece piece) {
-        return piece.getColor() ? 63 - piece.getSquare() : piece.getSquare();
+    private int positionOnMapOfPiece(byte square, boolean color) {
+        return color ? 63 - square : square;
     }
 
 
-    // Given a piece, bitboard of all the piece and the piece movement multiplier
-    // calculate how much does the piece is active
-    private int evaluateActivity(Piece piece, int movementMultiplier, long allPiecesBitBoard) {
-        byte piecePosition = piece.getSquare();
-        int numberOfMoves = 0;
-        if (piece instanceof Rook)
-            numberOfMoves = pieceMovement.getNumberOfRookMovement(piecePosition, allPiecesBitBoard);
-        else if (piece instanceof Bishop)
-            numberOfMoves = pieceMovement.getNumberOfBishopMovement(piecePosition, allPiecesBitBoard);
-        else if (piece instanceof Queen)
-            numberOfMoves = pieceMovement.getNumberOfRookMovement(piecePosition, allPiecesBitBoard) +
+    // Given a piece type, its square and bitboard of all the piece, calculate how much does the piece is active - how
+    // many squares it attacks
+    private int numberOfMoves(int pieceType, byte piecePosition, long allPiecesBitBoard) {
+        return switch (pieceType) {
+            case Piece.ROOK -> pieceMovement.getNumberOfRookMovement(piecePosition, allPiecesBitBoard);
+            case Piece.BISHOP -> pieceMovement.getNumberOfBishopMovement(piecePosition, allPiecesBitBoard);
+            case Piece.QUEEN -> pieceMovement.getNumberOfRookMovement(piecePosition, allPiecesBitBoard) +
                     pieceMovement.getNumberOfBishopMovement(piecePosition, allPiecesBitBoard);
+            default -> 0;
+        };
+    }
 
-        return numberOfMoves * movementMultiplier;
+    // Given a middle game value, an end game value and the game phase, return the value between them by the phase
+    // At MAX_GAME_PHASE it's the middle game value, and at 0 it's the end game value
+    public static int taperedValue(int middleGameValue, int endGameValue, int gamePhase) {
+        return (middleGameValue * gamePhase + endGameValue * (MAX_GAME_PHASE - gamePhase)) / MAX_GAME_PHASE;
     }
 }
@@ -16,6 +16,17 @@ public class PieceEvaluationConstants {
     public static final int BISHOP_INITIAL_POWER = 300;
     public static final int ROOK_INITIAL_POWER = 500;
     public static final int QUEEN_INITIAL_POWER = 850;
+    // The king is worth more than anything it can capture, so a king capture that can be recaptured is never chosen
+    public static final int KING_VALUE = 20_000;
+    // The material value of each type of piece, by Piece.KING, Piece.PAWN...
+    public static final int[] PIECE_VALUE_BY_TYPE = {KING_VALUE, PAWN_INITIAL_POWER, KNIGHT_INITIAL_POWER,
+            BISHOP_INITIAL_POWER, ROOK_INITIAL_POWER, QUEEN_INITIAL_POWER};
+
+    // The game phase is the non-pawn material left, the evaluation is tapered from the middle game values at
+    // MAX_GAME_PHASE to the end game values at 0, when only pawns and kings are left
+    public static final int MAX_GAME_PHASE = 24;
+    // The game phase of each type of piece, by Piece.KING, Piece.PAWN...
+    public static final int[] GAME_PHASE_BY_TYPE = {0, 0, 1, 1, 2, 4};
 
 
     protected static final int[] ROOK_MAP = {50, 50, 50, 50, 50, 50, 50, 50,
@@ -1,19 +1,15 @@
 package gamelogic.pieces;
 
 import gamelogic.GameLogicUtilities;
-import gamelogic.MovementData;
 import gamelogic.preemptivecalculators.PieceMovementPreemptiveCalculator;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 import static gamelogic.GameLogicUtilities.WHITE_PAWN_MOVE_OFFSET;
 
 // Class that provide movement for pieces given their position, and bitboards that represent the state of the board
 public class PieceMovement {
     private static final long[] KING_MOVES = new long[GameLogicUtilities.BOARD_SIZE];
-    private static final ArrayList<HashMap<Long, MovementData>> ROOK_MOVES = new ArrayList<>();
-    private static final ArrayList<HashMap<Long, MovementData>> BISHOP_MOVES = new ArrayList<>();
+    private static final long[] ROOK_MOVES = new long[PieceMovementPreemptiveCalculator.ROOK_MOVES_TABLE_SIZE];
+    private static final long[] BISHOP_MOVES = new long[PieceMovementPreemptiveCalculator.BISHOP_MOVES_TABLE_SIZE];
     private static final long[] KNIGHT_MOVES = new long[GameLogicUtilities.BOARD_SIZE];
     private static final long[] WHITE_PAWN_ONLY_MOVES = new long[GameLogicUtilities.BOARD_SIZE];
     private static final long[] WHITE_PAWN_CAPTURE = new long[GameLogicUtilities.BOARD_SIZE];
@@ -28,10 +24,6 @@ public class PieceMovement {
             return;
 
         // Initializing
-        for (int i = 0; i < GameLogicUtilities.BOARD_SIZE; i++) {
-            ROOK_MOVES.add(new HashMap<>());
-            BISHOP_MOVES.add(new HashMap<>());
-        }
         PieceMovementPreemptiveCalculator preemptiveCalculator = new PieceMovementPreemptiveCalculator();
         preemptiveCalculator.generateKingMoves(KING_MOVES);
         preemptiveCalculator.generateKnightMoves(KNIGHT_MOVES);
@@ -51,46 +43,59 @@ public class PieceMovement {
         return moves & ~sameColorPieceBitBoard;
     }
 
-    // Given a position of a queen and a bitboard of all pieces with the same color and a bitboard of all pieces
+    // Given a position of a queen and a bitboard of all pieces and a bitboard of all pieces with the same color
     // Return the moves it can do as bitboard
-    public long getQueenMovement(byte piecePosition, long sameColorPieceBitBoard, long allPiecesBitBoard) {
+    public long getQueenMovement(byte piecePosition, long allPiecesBitBoard, long sameColorPieceBitBoard) {
         // Queen moves like a rook and a bishop, and remove square with same color pieces
-        return getRookMovement(piecePosition, sameColorPieceBitBoard, allPiecesBitBoard)
-                | getBishopMovement(piecePosition, sameColorPieceBitBoard, allPiecesBitBoard);
+        return (getRookAttacks(piecePosition, allPiecesBitBoard) | getBishopAttacks(piecePosition, allPiecesBitBoard))
+                & ~sameColorPieceBitBoard;
     }
 
     // Given a position of a rook and a bitboard of all pieces with the same color and a bitboard of all pieces
     // Return the moves it can do as bitboard
     public long getRookMovement(byte piecePosition, long allPiecesBitBoard, long sameColorPieceBitBoard) {
-        // Bit Board & mask val - key to move for that position, and remove square with same color pieces
-        long keyVal = PieceMovementPreemptiveCalculator.ROOK_MASK[piecePosition] & allPiecesBitBoard;
-        long moves = ROOK_MOVES.get(piecePosition).get(keyVal).bitBoardMovement;
-        return moves & ~sameColorPieceBitBoard;
+        // Moves for the pieces on the rook lines, and remove square with same color pieces
+        return getRookAttacks(piecePosition, allPiecesBitBoard) & ~sameColorPieceBitBoard;
     }
 
-    // Given a position of a rook and a bitboard of all pieces with the same color and a bitboard of all pieces
+    // Given a position of a rook and a bitboard of all pieces
     // Return the number of moves a rook can make
     public int getNumberOfRookMovement(byte piecePosition, long allPiecesBitBoard) {
-        // Bit Board & mask val - key to move for that position, and remove square with same color pieces
-        long keyVal = PieceMovementPreemptiveCalculator.ROOK_MASK[piecePosition] & allPiecesBitBoard;
-        return ROOK_MOVES.get(piecePosition).get(keyVal).numberOfMovesPieceCanDo;
+        return Long.bitCount(getRookAttacks(piecePosition, allPiecesBitBoard));
     }
 
     // Given a position of a bishop and a bitboard of the pieces with the same color and a bitboard of all pieces
     // Return the moves it can do as bitboard
     public long getBishopMovement(byte piecePosition, long allPiecesBitBoard, long sameColorPieceBitBoard) {
-        // Calculate the bitBoard & mask val - key to move for that position, and remove square with same color pieces
-        long keyVal = PieceMovementPreemptiveCalculator.BISHOP_MASK[piecePosition] & allPiecesBitBoard;
-        long moves = BISHOP_MOVES.get(piecePosition).get(keyVal).bitBoardMovement;
-        return moves & ~sameColorPieceBitBoard;
+        // Moves for the pieces on the bishop lines, and remove square with same color pieces
+        return getBishopAttacks(piecePosition, allPiecesBitBoard) & ~sameColorPieceBitBoard;
     }
 
-    // Given a position of a bishop and a bitboard of the pieces with the same color and a bitboard of all pieces
+    // Given a position of a bishop and a bitboard of all pieces
     // Return the number of moves a bishop can make
     public int getNumberOfBishopMovement(byte piecePosition, long allPiecesBitBoard) {
-        // Calculate the bitBoard & mask val - key to move for that position, and remove square with same color pieces
-        long keyVal = PieceMovementPreemptiveCalculator.BISHOP_MASK[piecePosition] & allPiecesBitBoard;
-        return BISHOP_MOVES.get(piecePosition).get(keyVal).numberOfMovesPieceCanDo;
+        return Long.bitCount(getBishopAttacks(piecePosition, allPiecesBitBoard));
+    }
+
+    // Given a position of a rook and a bitboard of all pieces, return the squares it attacks, including the squares of
+    // the pieces that block it of any color
+    public long getRookAttacks(byte piecePosition, long allPiecesBitBoard) {
+        // The pieces on the relevant squares times the magic number, give the index of the moves of that combination
+        long relevantPieces = PieceMovementPreemptiveCalculator.ROOK_RELEVANT_MASK[piecePosition] & allPiecesBitBoard;
+        int index = (int) ((relevantPieces * PieceMovementPreemptiveCalculator.ROOK_MAGICS[piecePosition])
+                >>> PieceMovementPreemptiveCalculator.ROOK_SHIFT[piecePosition]);
+        return ROOK_MOVES[PieceMovementPreemptiveCalculator.ROOK_TABLE_OFFSET[piecePosition] + index];
+    }
+
+    // Given a position of a bishop and a bitboard of all pieces, return the squares it attacks, including the squares
+    // of the pieces that block it of any color
+    public long getBishopAttacks(byte piecePosition, long allPiecesBitBoard) {
+        // The pieces on the relevant squares times the magic number, give the index of the moves of that combination
+        long relevantPieces = PieceMovementPreemptiveCalculator.BISHOP_RELEVANT_MASK[piecePosition]
+                & allPiecesBitBoard;
+        int index = (int) ((relevantPieces * PieceMovementPreemptiveCalculator.BISHOP_MAGICS[piecePosition])
+                >>> PieceMovementPreemptiveCalculator.BISHOP_SHIFT[piecePosition]);
+        return BISHOP_MOVES[PieceMovementPreemptiveCalculator.BISHOP_TABLE_OFFSET[piecePosition] + index];
     }
 
     // Given a position of a knight and a bitboard of all the pieces with the same color,
@@ -123,4 +128,28 @@ public class PieceMovement {
     public long getPawnCaptureSquare(boolean color, byte square) {
         return color ? WHITE_PAWN_CAPTURE[square] : BLACK_PAWN_CAPTURE[square];
     }
+
+    // Given a piece type, its square and color, a bitboard of all pieces and a bitboard of all pieces with the same
+    // color, return the moves a piece of that type can do as bitboard, without needing the piece itself
+    public long getMovesAsBitBoard(int pieceType, byte square, boolean color, long allPiecesBitBoard,
+                                   long sameColorPieceBitBoard) {
+        return switch (pieceType) {
+            case Piece.PAWN -> getPawnMovement(square, color, allPiecesBitBoard,
+                    allPiecesBitBoard & ~sameColorPieceBitBoard);
+            case Piece.KNIGHT -> getKnightMovement(square, sameColorPieceBitBoard);
+            case Piece.BISHOP -> getBishopMovement(square, allPiecesBitBoard, sameColorPieceBitBoard);
+            case Piece.ROOK -> getRookMovement(square, allPiecesBitBoard, sameColorPieceBitBoard);
+            case Piece.QUEEN -> getQueenMovement(square, allPiecesBitBoard, sameColorPieceBitBoard);
+            default -> getKingMovement(square, sameColorPieceBitBoard);
+        };
+    }
+
+    // Given a piece type, its square and color and a bitboard of all pieces, return the squares a piece of that type
+    // attacks as bitboard, including the squares of pieces of both colors. A pawn attacks only its capture squares
+    public long getAttacksAsBitBoard(int pieceType, byte square, boolean color, long allPiecesBitBoard) {
+        if (pieceType == Piece.PAWN)
+            return getPawnCaptureSquare(color, square);
+
+        return getMovesAsBitBoard(pieceType, square, color, allPiecesBitBoard, GameLogicUtilities.EMPTY_BOARD);
+    }
 }
@@ -3,65 +3,60 @@ package gamelogic.pieces;
 import gamelogic.GameLogicUtilities;
 import gamelogic.preemptivecalculators.ThreateningLinePreemptiveCalculator;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 /*
  Class that provide threatening line of line pieces, given their position, enemy king position the board as bitboard
- Save it as a linked list of linked list of hash maps
- Index of first list - position of piece
- Index of second list - position of king
- Key in the hash map - mask of the according piece & bitboard of the board
- Mask of each piece is their as bitboard movement if the board was empty
+ The threatening line is the square of the piece and the squares between it and the enemy king, if the king is on the
+ moving lines of the piece and at most 1 piece is between them, otherwise there is no threatening line (0)
+ The squares between each 2 squares are precalculated, saved in a flat array
+ Index of the array - position of piece * 64 + position of king
  */
 public class PieceThreateningLine {
 
-    private static final ArrayList<ArrayList<HashMap<Long, Long>>> rookThreateningLinesDB = new ArrayList<>();
-    private static final ArrayList<ArrayList<HashMap<Long, Long>>> bishopThreateningLinesDB = new ArrayList<>();
+    private static final long[] SQUARES_BETWEEN = new long[GameLogicUtilities.BOARD_SIZE * GameLogicUtilities.BOARD_SIZE];
 
     private static final long NO_VALUE = 0;
+    private static final int MAX_NUMBER_OF_PIECE_ON_THREAT_LINE = 1;
 
     private static boolean initialized = false;
 
-    // precalculate all the threatening lines using the ThreateningLinePreemptiveCalculator class
+    // precalculate the squares between each 2 squares using the ThreateningLinePreemptiveCalculator class
     public PieceThreateningLine() {
         if (initialized)
             return;
 
-        // Initializing
+        // Fill the db with the squares between
         ThreateningLinePreemptiveCalculator threateningLineCalculator = new ThreateningLinePreemptiveCalculator();
-
-        for (int i = 0; i < GameLogicUtilities.BOARD_SIZE; i++) {
-            rookThreateningLinesDB.add(new ArrayList<>());
-            bishopThreateningLinesDB.add(new ArrayList<>());
-            for (int j = 0; j < GameLogicUtilities.BOARD_SIZE; j++) {
-                rookThreateningLinesDB.get(i).add(new HashMap<>());
-                bishopThreateningLinesDB.get(i).add(new HashMap<>());
-            }
-        }
-        // Fill the db with the possible threatening lines
-        threateningLineCalculator.calculateThreateningLines(rookThreateningLinesDB, bishopThreateningLinesDB);
+        threateningLineCalculator.calculateSquaresBetween(SQUARES_BETWEEN);
         initialized = true;
     }
 
-    // Given the piece position, enemy king position and bitboard of the board, return the threat line of the queen
-    public long getQueenThreateningLine(byte piecePosition, byte enemyKingSquare, Long allPiecesBitBoard) {
-        // The queen can have only 1 treat line as a piece on the enemy king (either as a bishop or rook)
-        // Either both 0 or just one of them is 0
-        long rookTreatLine = getRookThreateningLine(piecePosition, enemyKingSquare, allPiecesBitBoard);
-        long bishopTreatLine = getBishopThreateningLine(piecePosition, enemyKingSquare, allPiecesBitBoard);
-        return rookTreatLine + bishopTreatLine;
-    }
-
     // Given the piece position, enemy king position and bitboard of the board, return the threat line of the rook
-    public long getRookThreateningLine(byte piecePosition, byte enemyKingSquare, Long allPiecesBitBoard) {
-        long keyVal = ThreateningLinePreemptiveCalculator.ROOK_MASK[piecePosition] & allPiecesBitBoard;
-        return rookThreateningLinesDB.get(piecePosition).get(enemyKingSquare).getOrDefault(keyVal, NO_VALUE);
+    public long getRookThreateningLine(byte piecePosition, byte enemyKingSquare, long allPiecesBitBoard) {
+        // King position is on the rook lines
+        if ((ThreateningLinePreemptiveCalculator.ROOK_MASK[piecePosition]
+                & GameLogicUtilities.squareAsBitBoard(enemyKingSquare)) == 0)
+            return NO_VALUE;
+
+        return createThreateningLine(piecePosition, enemyKingSquare, allPiecesBitBoard);
     }
 
     // Given the piece position, enemy king position and bitboard of the board, return the threat line of the bishop
-    public long getBishopThreateningLine(byte piecePosition, byte enemyKingSquare, Long allPiecesBitBoard) {
-        long keyVal = ThreateningLinePreemptiveCalculator.BISHOP_MASK[piecePosition] & allPiecesBitBoard;
-        return bishopThreateningLinesDB.get(piecePosition).get(enemyKingSquare).getOrDefault(keyVal, NO_VALUE);
+    public long getBishopThreateningLine(byte piecePosition, byte enemyKingSquare, long allPiecesBitBoard) {
+        // King position is on the bishop lines
+        if ((ThreateningLinePreemptiveCalculator.BISHOP_MASK[piecePosition]
+                & GameLogicUtilities.squareAsBitBoard(enemyKingSquare)) == 0)
+            return NO_VALUE;
+
+        return createThreateningLine(piecePosition, enemyKingSquare, allPiecesBitBoard);
+    }
+
+    // Given the piece position and enemy king position that are on the same line, and bitboard of the board,
+    // return the piece square and the squares between them, if there are too many pieces between them return 0
+    private long createThreateningLine(byte piecePosition, byte enemyKingSquare, long allPiecesBitBoard) {
+        long squaresBetween = SQUARES_BETWEEN[piecePosition * GameLogicUtilities.BOARD_SIZE + enemyKingSquare];
+        if (Long.bitCount(squaresBetween & allPiecesBitBoard) > MAX_NUMBER_OF_PIECE_ON_THREAT_LINE)
+            return NO_VALUE;
+
+        return squaresBetween | GameLogicUtilities.squareAsBitBoard(piecePosition);
     }
 }
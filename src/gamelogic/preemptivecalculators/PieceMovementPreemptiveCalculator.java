@@ -1,18 +1,16 @@
 package gamelogic.preemptivecalculators;
 
 import gamelogic.GameLogicUtilities;
-import gamelogic.MovementData;
-
-import java.util.ArrayList;
-import java.util.HashMap;
 
 /*
  This class is responsible to generate for each piece, for each square on the board (0-63),
  bitboards that represent the moves it can do
  For line pieces - their moves depend on the pieces on their moving line,
- so it calculates for each square all the possible combination on the moving lines
- Save it on a 64 array of hashmap, each cell of the array is a square,
- and for each hashmap the key for the movement is the mask value of the pieces on the movement line
+ so it calculates for each square all the possible combination of pieces on the moving lines (magic bitboards).
+ Only the pieces on the relevant squares matter - the moving lines without the edge of the board and the square of the
+ piece. The relevant pieces multiplied by the magic number of the square, shifted right by the shift of the square,
+ give a unique index for each combination, and the moves of all the squares are saved in one flat array,
+ each square starting at its own offset.
  For none line pieces - simply calculate for each square what are the possible movements and save it on an array.
  The movement is represented as a bitboard.
  */
@@ -26,6 +24,54 @@ public class PieceMovementPreemptiveCalculator extends PreemptiveCalculator {
 
     private static final byte MAX_DX_DY = 4;
 
+    // Size of the flat arrays of the moves of all the squares, the sum of 2^(number of relevant squares) of each square
+    public static final int ROOK_MOVES_TABLE_SIZE = 102400;
+    public static final int BISHOP_MOVES_TABLE_SIZE = 5248;
+
+    // The mask of the relevant squares of each square, its shift and the offset its moves start at in the flat array
+    public static final long[] ROOK_RELEVANT_MASK = new long[GameLogicUtilities.BOARD_SIZE];
+    public static final long[] BISHOP_RELEVANT_MASK = new long[GameLogicUtilities.BOARD_SIZE];
+    public static final int[] ROOK_SHIFT = new int[GameLogicUtilities.BOARD_SIZE];
+    public static final int[] BISHOP_SHIFT = new int[GameLogicUtilities.BOARD_SIZE];
+    public static final int[] ROOK_TABLE_OFFSET = new int[GameLogicUtilities.BOARD_SIZE];
+    public static final int[] BISHOP_TABLE_OFFSET = new int[GameLogicUtilities.BOARD_SIZE];
+
+    // Magic number of each square, found offline so each combination of relevant pieces has its own index
+    public static final long[] ROOK_MAGICS = {
+            0x1180008020400216L, 0xA80104001200080L, 0x200102040088201L, 0x280100008008035L,
+            0x480020400080080L, 0x500080241000400L, 0x1200040200008108L, 0x250000AA00418300L,
+            0x4800040068022L, 0x4068400020005000L, 0x808020001000L, 0x1801800100084L,
+            0x200800800040081L, 0x40120022000810A4L, 0x4002000401020008L, 0x220800040800100L,
+            0x8000C0002000C0L, 0x50004000201044L, 0xA0010015042240L, 0x108008010008008L,
+            0x808008000400L, 0x2008004000280L, 0x842040001021008L, 0x200460009008044L,
+            0x114401080088021L, 0x104500440032000L, 0x4181200180100080L, 0x480280100080L,
+            0x8200040080080080L, 0x84000480800200L, 0x80A1010400020810L, 0x1008008200010044L,
+            0x2804001800020L, 0x440402000401001L, 0x200080801001L, 0x110000800808010L,
+            0x80080005001100L, 0x8020800200800401L, 0x4000080204000110L, 0x522040866000481L,
+            0x6000802040008000L, 0x500020014003L, 0x8240200010008080L, 0xC044100A00220040L,
+            0x881000800110004L, 0x201A001004020008L, 0x4103000200010004L, 0x42210142AB020004L,
+            0x140008000402080L, 0x204102008200L, 0x8008200013004100L, 0x8100080080100080L,
+            0x80044008280L, 0x4020800200040080L, 0x19002080400L, 0x8042004114008200L,
+            0x20C108200402102L, 0x4040001024408901L, 0x842110420000841L, 0x22004009102006L,
+            0x4322011008200402L, 0x9585000400081203L, 0x22811100084L, 0x41280214502L};
+    public static final long[] BISHOP_MAGICS = {
+            0x5184081000408500L, 0x439050104010860L, 0x8008020C00212082L, 0x2528060040010100L,
+            0x4050420000101L, 0x8000880540000440L, 0x400410861100040L, 0x8002414050103065L,
+            0x2802410044810A0L, 0x800440800910210L, 0x480442308109000CL, 0x1044400801001L,
+            0x28108820095042L, 0x1408420151080100L, 0x2000040A01046018L, 0x2040A0051041020L,
+            0x200111245000C0L, 0x8000510040040L, 0x2000108010100L, 0x6010219104008000L,
+            0x2082018C00A21400L, 0x1021001088884000L, 0x804002021220B0L, 0x204021020A020210L,
+            0x490110248600100L, 0x91081050024810L, 0x78920102080C4402L, 0xC4040140401080L,
+            0x2000820014010400L, 0xA008104100080L, 0x4440000862100L, 0x1044403104800L,
+            0x848084000848400L, 0xA121100880101106L, 0x4002011000210040L, 0x2A2004041040100L,
+            0x4081010402020020L, 0x460080040002408L, 0x5810208220011500L, 0x44008081042400L,
+            0x1808410848002010L, 0x8A10880819001200L, 0x440208020805008L, 0x9810022018020100L,
+            0x88100400404L, 0xA008010804890200L, 0xAC040411688C08L, 0x1010102001103L,
+            0x965080804842200L, 0x402202011C231010L, 0x1000204244304000L, 0x400720C084040000L,
+            0x800040821010800L, 0x1C08081061020000L, 0x8681084004040L, 0x8106420882060L,
+            0x4A012028040420F0L, 0x202024A2200L, 0x4880210200420808L, 0x800A08000420206L,
+            0x10101090202208L, 0xA006202020020094L, 0xA000200401024408L, 0x8221021408008214L};
+
     private static final byte LAST_SQUARE_ON_2ND_ROW = 15;
     private static final byte LAST_SQUARE_ON_6TH_ROW = 48;
 
@@ -35,13 +81,13 @@ public class PieceMovementPreemptiveCalculator extends PreemptiveCalculator {
         generateMoves(movesArray, KING_OFFSETS);
     }
 
-    // Change rook/bishop moves that, in each cell of the array,
-    // there is a hashmap that has the bitBoard movement for each row+column or diagonal
-    // The value of row+column or diagonal is the key to that value of bitBoard movement
-    public void generateLinePieceMoves(ArrayList<HashMap<Long, MovementData>> rookMoves,
-                                       ArrayList<HashMap<Long, MovementData>> bishopMoves) {
-
-        generateAllMovesLinePiece(rookMoves, bishopMoves);
+    // Change rook/bishop moves that, for each square, at the index of each combination of pieces on its relevant
+    // squares, there is the bitBoard movement of the piece with those pieces on the board
+    public void generateLinePieceMoves(long[] rookMoves, long[] bishopMoves) {
+        generateAllMovesLinePiece(rookMoves, ROOK_OFFSETS, ROOK_MAGICS, ROOK_RELEVANT_MASK, ROOK_SHIFT,
+                ROOK_TABLE_OFFSET, false);
+        generateAllMovesLinePiece(bishopMoves, BISHOP_OFFSETS, BISHOP_MAGICS, BISHOP_RELEVANT_MASK, BISHOP_SHIFT,
+                BISHOP_TABLE_OFFSET, true);
     }
 
     // Change moves array that in each position of the array,
@@ -97,48 +143,57 @@ public class PieceMovementPreemptiveCalculator extends PreemptiveCalculator {
     }
 
     // Generate moves for each square of the board for line pieces (Rook, Bishop)
-    private void generateAllMovesLinePiece(ArrayList<HashMap<Long, MovementData>> moveListRook,
-                                           ArrayList<HashMap<Long, MovementData>> moveListBishop) {
-
-        // For each square, for each possible values of rows and columns, get the movement it can do
+    // Fill the relevant mask, shift and table offset of each square, and the moves of each combination of pieces
+    private void generateAllMovesLinePiece(long[] movesTable, byte[] offsetArray, long[] magics, long[] relevantMasks,
+                                           int[] shifts, int[] tableOffsets, boolean isBishop) {
+        int tableOffset = 0;
         for (byte pieceSquare = 0; pieceSquare < GameLogicUtilities.BOARD_SIZE; pieceSquare++) {
-            for (int rowValue = 0; rowValue < NUMBER_OF_POSSIBLE_VALUES_PER_EDGE; rowValue++) {
-                for (int columnValue = 0; columnValue < NUMBER_OF_POSSIBLE_VALUES_PER_EDGE; columnValue++) {
-                    long rookMap = toBitMapRook(pieceSquare, rowValue, columnValue);
-                    long bishopMap = toBitMapBishop(pieceSquare, rowValue, columnValue);
-                    MovementData movesRook = generateMovesLinePiece(pieceSquare, ROOK_OFFSETS, rookMap,
-                            getDistanceTillEdgeOfBoard(pieceSquare));
-                    MovementData movesBishop = generateMovesLinePiece(pieceSquare, BISHOP_OFFSETS, bishopMap,
-                            getDistanceTillEdgeOfBoardBishop(pieceSquare));
-                    moveListRook.get(pieceSquare).put(rookMap, movesRook);
-                    moveListBishop.get(pieceSquare).put(bishopMap, movesBishop);
-                }
-            }
+            byte[] movesTillEdge = isBishop ? getDistanceTillEdgeOfBoardBishop(pieceSquare)
+                    : getDistanceTillEdgeOfBoard(pieceSquare);
+            long relevantMask = generateRelevantMask(pieceSquare, offsetArray, movesTillEdge);
+            relevantMasks[pieceSquare] = relevantMask;
+            shifts[pieceSquare] = Long.SIZE - Long.bitCount(relevantMask);
+            tableOffsets[pieceSquare] = tableOffset;
+
+            // Go over all the subsets of the relevant mask, each is a possible combination of pieces on the lines
+            long piecesOnLines = 0;
+            do {
+                int index = tableOffset + (int) ((piecesOnLines * magics[pieceSquare]) >>> shifts[pieceSquare]);
+                movesTable[index] = generateMovesLinePiece(pieceSquare, offsetArray, piecesOnLines, movesTillEdge);
+                piecesOnLines = (piecesOnLines - relevantMask) & relevantMask;
+            } while (piecesOnLines != 0);
+
+            tableOffset += 1 << Long.bitCount(relevantMask);
         }
     }
 
+    // Given a pieceSquare, an array of offsets and the distances till the edge of the board in each offset direction,
+    // return the squares on the moving lines without the edge of the board - only pieces on them can block the piece
+    private long generateRelevantMask(byte pieceSquare, byte[] offsetArray, byte[] movesTillEdge) {
+        long positionBit = GameLogicUtilities.squareAsBitBoard(pieceSquare), result = 0;
+        for (byte i = 0; i < offsetArray.length; i++)
+            for (byte j = 1; j < movesTillEdge[i]; j++)
+                result |= GameLogicUtilities.shiftNumberLeft(positionBit, j * offsetArray[i]);
+
+        return result;
+    }
+
     // Given a pieceSquare, an array of offsets and a long that represent the current board
     // Return a long with all the possible moves a piece with does offset can do on that board
-    private MovementData generateMovesLinePiece(byte pieceSquare, byte[] offsetArray, long bitBoard, byte[] movesTillEdge) {
+    private long generateMovesLinePiece(byte pieceSquare, byte[] offsetArray, long bitBoard, byte[] movesTillEdge) {
         long positionBit = GameLogicUtilities.squareAsBitBoard(pieceSquare), result = 0;
-        int counter = 0;
         for (byte i = 0; i < offsetArray.length; i++) {
             // Run until the edge of the board or found a piece
             for (byte j = 1; j <= movesTillEdge[i]; j++) {
                 long currentBit = GameLogicUtilities.shiftNumberLeft(positionBit, j * offsetArray[i]);
+                result |= currentBit;
 
                 // if not 0, piece on that position, 0 mean position empty
-                if ((currentBit & bitBoard) != 0) {
-                    result |= currentBit;
-                    counter++;
+                if ((currentBit & bitBoard) != 0)
                     break;
-                } else {
-                    counter++;
-                    result |= currentBit;
-                }
             }
         }
-        return new MovementData(result, counter);
+        return result;
     }
 
     // Given an offset and a pieceSquare, check if that offset from that pieceSquare is not bigger than max dx dy
@@ -1,11 +1,6 @@
 package gamelogic.specialmoves;
 
-import gamelogic.GameLogicUtilities;
-import gamelogic.pieces.King;
 import gamelogic.pieces.Piece;
-import gamelogic.pieces.Rook;
-
-import java.util.LinkedList;
 
 import static gamelogic.GameLogicUtilities.WHITE;
 
@@ -38,6 +33,12 @@ public class CastlingSpecialMove {
     private static final long BLACK_SHORT_CASTLE_SQUARE = 57;
     private static final long BLACK_LONG_CASTLE_SQUARE = 61;
 
+    // Each castling right as a bit of the castling rights mask
+    private static final byte WHITE_SHORT_CASTLE_RIGHT = 1;
+    private static final byte WHITE_LONG_CASTLE_RIGHT = 2;
+    private static final byte BLACK_SHORT_CASTLE_RIGHT = 4;
+    private static final byte BLACK_LONG_CASTLE_RIGHT = 8;
+
     public CastlingSpecialMove(boolean whiteShortCastle, boolean whiteLongCastle, boolean blackShortCastle,
                                boolean blackLongCastle) {
 
@@ -55,10 +56,10 @@ public class CastlingSpecialMove {
 
     }
 
-    // Update all the castling right according to the piece that has been moved
-    public void updateCastlingRights(byte currentSquare, byte targetSquare, Piece pieceToMove) {
+    // Update all the castling right according to the type and color of the piece that has been moved
+    public void updateCastlingRights(byte currentSquare, byte targetSquare, byte pieceType, boolean color) {
         // If a rook moved from its initial position, disable that rook side castling
-        if (pieceToMove instanceof Rook) {
+        if (pieceType == Piece.ROOK) {
             switch (currentSquare) {
                 case INITIAL_WHITE_ROOK_SQUARE_SHORT -> whiteShortCastle = false;
                 case INITIAL_WHITE_ROOK_SQUARE_LONG -> whiteLongCastle = false;
@@ -68,7 +69,7 @@ public class CastlingSpecialMove {
         }
 
         // If the king move, disable all of its castling right
-        if (pieceToMove instanceof King) {
+        if (pieceType == Piece.KING) {
             if (currentSquare == INITIAL_WHITE_KING_SQUARE) {
                 whiteShortCastle = false;
                 whiteLongCastle = false;
@@ -80,7 +81,7 @@ public class CastlingSpecialMove {
         }
 
         // Check if piece took an enemy rook, to cancel
-        if (pieceToMove.getColor() == WHITE) {
+        if (color == WHITE) {
             if (targetSquare == INITIAL_BLACK_ROOK_SQUARE_LONG)
                 blackLongCastle = false;
             if (targetSquare == INITIAL_BLACK_ROOK_SQUARE_SHORT)
@@ -93,32 +94,27 @@ public class CastlingSpecialMove {
         }
     }
 
-    // Given a current square, target square,
-    // updateCastlingRights pieceBoard and piece square position according to the castling that need to be done
-    // Short/long castling, and of which color
-    public void execute(byte currentSquare, byte targetSquare, Piece[] pieceBoard, LinkedList<Piece> pieceList) {
-        Piece king = pieceBoard[currentSquare];
-        int rookPosition, rookTargetPosition;
+    // Given the current square and target square of the king, return the square of the rook that castle with it
+    public static byte getRookSquare(byte currentSquare, byte targetSquare) {
         // If current square (the king position) is larger than his target square, its short castling
-        if (currentSquare > targetSquare) {
-            rookPosition = INITIAL_WHITE_ROOK_SQUARE_SHORT;
-            rookTargetPosition = targetSquare + SHORT_CASTLE_ROOK_OFFSET_FROM_TARGET_SQUARE;
-        } else {
-            rookPosition = INITIAL_WHITE_ROOK_SQUARE_LONG;
-            rookTargetPosition = targetSquare + LONG_CASTLE_ROOK_OFFSET_FROM_TARGET_SQUARE;
-        }
+        int rookPosition = currentSquare > targetSquare ? INITIAL_WHITE_ROOK_SQUARE_SHORT : INITIAL_WHITE_ROOK_SQUARE_LONG;
         // Check if you need to add an offset, rook position is white rook position so if black need to add offset
-        int offset = king.getColor() ? 0 : BLACK_CASTLING_SQUARE_OFFSET;
+        int offset = currentSquare == INITIAL_WHITE_KING_SQUARE ? 0 : BLACK_CASTLING_SQUARE_OFFSET;
+        return (byte) (rookPosition + offset);
+    }
 
-        GameLogicUtilities.updatePiecePosition(targetSquare, currentSquare, pieceBoard, pieceList);
-        GameLogicUtilities.updatePiecePosition((byte) rookTargetPosition, (byte) (rookPosition + offset),
-                pieceBoard, pieceList);
+    // Given the current square and target square of the king, return the square the rook goes to when castling
+    public static byte getRookTargetSquare(byte currentSquare, byte targetSquare) {
+        if (currentSquare > targetSquare)
+            return (byte) (targetSquare + SHORT_CASTLE_ROOK_OFFSET_FROM_TARGET_SQUARE);
+
+        return (byte) (targetSquare + LONG_CASTLE_ROOK_OFFSET_FROM_TARGET_SQUARE);
     }
 
-    // Get king special moves square, for the king is castling short/long
-    public long getMoves(Piece piece, long enemyMovement, long piecesBitBoard) {
+    // Get king special moves square of the color given, for the king is castling short/long
+    public long getMoves(boolean color, long enemyMovement, long piecesBitBoard) {
         long specialMoves = 0;
-        if (piece.getColor() == WHITE) {
+        if (color == WHITE) {
             if (whiteShortCastle && checkShortCastling(piecesBitBoard, enemyMovement, 0))
                 specialMoves |= SHORT_CASTLING_SQUARE_BITBOARD;
 
@@ -150,6 +146,29 @@ public class CastlingSpecialMove {
 
     }
 
+    // Return all the castling rights as a mask, each right is a bit
+    public byte getCastlingRights() {
+        byte castlingRights = 0;
+        if (whiteShortCastle)
+            castlingRights |= WHITE_SHORT_CASTLE_RIGHT;
+        if (whiteLongCastle)
+            castlingRights |= WHITE_LONG_CASTLE_RIGHT;
+        if (blackShortCastle)
+            castlingRights |= BLACK_SHORT_CASTLE_RIGHT;
+        if (blackLongCastle)
+            castlingRights |= BLACK_LONG_CASTLE_RIGHT;
+
+        return castlingRights;
+    }
+
+    // Set all the castling rights from a mask, each right is a bit
+    public void setCastlingRights(byte castlingRights) {
+        whiteShortCastle = (castlingRights & WHITE_SHORT_CASTLE_RIGHT) != 0;
+        whiteLongCastle = (castlingRights & WHITE_LONG_CASTLE_RIGHT) != 0;
+        blackShortCastle = (castlingRights & BLACK_SHORT_CASTLE_RIGHT) != 0;
+        blackLongCastle = (castlingRights & BLACK_LONG_CASTLE_RIGHT) != 0;
+    }
+
     // Return if the target square is a square of castling
     public boolean isCastlingMove(byte targetSquare) {
         return (targetSquare == WHITE_SHORT_CASTLE_SQUARE && whiteShortCastle) ||
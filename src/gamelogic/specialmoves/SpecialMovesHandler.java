@@ -1,22 +1,17 @@
 package gamelogic.specialmoves;
 
-import gamelogic.pieces.King;
-import gamelogic.pieces.Pawn;
 import gamelogic.pieces.Piece;
 
-import java.util.LinkedList;
-
 /*
-Class that handle all the special moves in a game, Special moves are castling and en passant
-has 4 public functions:
-1. updateSpecialMoves: Given a piece and a square that the piece has moved to, updateCastlingRights the castling
-rights and en passant square
-2. getSpecialMoves: Given a piece, the possible enemy movement and bitboard of all pieces position
-return as bitboard if the piece can can do en passant or castling
-3. executeSpecialMove: Given the current square of the piece and its target square,
-execute the special move and updateCastlingRights the list and board of pieces -
-assume that the target square was given from getSpecialMoves
-4.  isSpecialMove: Given a target square, check if it's a square of castling or en passant move - if yes return true
+Class that handle all the special moves in a game, Special moves are castling, en passant and promotion
+The pieces are given by their type, square and color, the board itself is updated by the game
+has 3 main public functions:
+1. updateSpecialMoves: Given a piece type and color and the squares that the piece has moved from and to,
+updateCastlingRights the castling rights and en passant square
+2. getSpecialMoves: Given a piece type, its square and color, the possible enemy movement and bitboard of all pieces
+position, return as bitboard if the piece can can do en passant or castling
+3. isSpecialMove: Given a target square and a piece type, check if it's a square of castling, en passant or promotion
+move - if yes return true
  */
 public class SpecialMovesHandler {
 
@@ -37,51 +32,61 @@ public class SpecialMovesHandler {
         this.castlingSpecialMove = new CastlingSpecialMove(specialMovesHandler.castlingSpecialMove);
     }
 
-    // Given a piece that has been played, the square it has moved to, update all special moves
-    public void updateSpecialMoves(byte currentSquare, byte targetSquare, Piece pieceToMove) {
-        castlingSpecialMove.updateCastlingRights(currentSquare, targetSquare, pieceToMove);
-        pawnSpecialMoves.updateEnPassantSquare(currentSquare, targetSquare, pieceToMove);
+    // Given the type and color of a piece that has been played, the square it has moved to, update all special moves
+    public void updateSpecialMoves(byte currentSquare, byte targetSquare, byte pieceType, boolean color) {
+        castlingSpecialMove.updateCastlingRights(currentSquare, targetSquare, pieceType, color);
+        pawnSpecialMoves.updateEnPassantSquare(currentSquare, targetSquare, pieceType, color);
     }
 
-    // given a piece, check what special moves it can do. A pawn can do en passant and a king can castle
-    public long getSpecialMoves(Piece piece, long enemyMovement, long piecesBitBoard, LinkedList<Piece> pieceList,
-                                boolean colorOfPlayersTurn, Piece king) {
+    // given a piece type, its square and color, check what special moves it can do. A pawn can do en passant and a
+    // king can castle. The enemy rooks and queens are needed to check if en passant exposes the king on its row
+    public long getSpecialMoves(byte pieceType, byte square, boolean color, long enemyMovement, long piecesBitBoard,
+                                long enemyRooksAndQueens, byte kingSquare) {
 
-        if (piece instanceof King)
-            return castlingSpecialMove.getMoves(piece, enemyMovement, piecesBitBoard);
+        if (pieceType == Piece.KING)
+            return castlingSpecialMove.getMoves(color, enemyMovement, piecesBitBoard);
 
-        if (piece instanceof Pawn)
-            return pawnSpecialMoves.getMoves(piece, pieceList, piecesBitBoard, colorOfPlayersTurn, king);
+        if (pieceType == Piece.PAWN)
+            return pawnSpecialMoves.getMoves(square, color, enemyRooksAndQueens, piecesBitBoard, kingSquare);
 
         return 0;
     }
 
-    // Execute the special to target square according to the piece and the square,
-    // updateCastlingRights the board and list accordingly
-    public void executeSpecialMove(byte currentSquare, byte targetSquare, LinkedList<Piece> pieceList,
-                                   Piece[] pieceBoard, char typeOfPieceToPromoteTo) {
-
-        if (pieceBoard[currentSquare] instanceof King)
-            castlingSpecialMove.execute(currentSquare, targetSquare, pieceBoard, pieceList);
-        else
-            pawnSpecialMoves.execute(currentSquare, targetSquare, pieceBoard, pieceList, typeOfPieceToPromoteTo);
-    }
-
-    // Return whatever or not if target square is a special move square,
-    // meaning moving there is castling or en passant move
-    public boolean isSpecialMove(byte targetSquare, Piece pieceToMove) {
-        if (pieceToMove instanceof Pawn)
+    // Return whatever or not if target square is a special move square of the piece type,
+    // meaning moving there is castling, en passant or promotion move
+    public boolean isSpecialMove(byte targetSquare, byte pieceType) {
+        if (pieceType == Piece.PAWN)
             return pawnSpecialMoves.isSpecialMove(targetSquare);
 
-        if (pieceToMove instanceof King)
+        if (pieceType == Piece.KING)
             return castlingSpecialMove.isCastlingMove(targetSquare);
 
         return false;
     }
 
+    // Return whatever or not moving a piece of the type to the target square is en passant move
+    public boolean isEnPassantMove(byte targetSquare, byte pieceType) {
+        return pieceType == Piece.PAWN && pawnSpecialMoves.isEnPassantMove(targetSquare);
+    }
+
     // Return en passant square
     public byte getEnPassantSquare() {
         return pawnSpecialMoves.getEnPassantSquare();
     }
 
+    // Set en passant square
+    public void setEnPassantSquare(byte enPassantSquare) {
+        pawnSpecialMoves.setEnPassantSquare(enPassantSquare);
+    }
+
+    // Return the castling rights as a mask
+    public byte getCastlingRights() {
+        return castlingSpecialMove.getCastlingRights();
+    }
+
+    // Set the castling rights from a mask
+    public void setCastlingRights(byte castlingRights) {
+        castlingSpecialMove.setCastlingRights(castlingRights);
+    }
+
 }
\ No newline at end of file